@@ -0,0 +1,23 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+/**
+ * Built-in aggregate functions that can be calculated by the database over the values in a range index, so the result
+ * can be returned without reading any documents.
+ */
+public enum Aggregate {
+    SUM("sum"),
+    AVG("avg"),
+    MIN("min"),
+    MAX("max");
+
+    private final String name;
+
+    Aggregate(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.MarkLogicIOException;
+import com.marklogic.client.Transaction;
+import com.marklogic.client.document.DocumentManager;
+import com.marklogic.client.document.DocumentPage;
+import com.marklogic.client.document.DocumentRecord;
+import com.marklogic.client.io.BytesHandle;
+import com.marklogic.client.io.DocumentMetadataHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.marker.BufferableHandle;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.DocumentDescriptor;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Computes content hashes for documents about to be written and keeps track of the hashes that are known to be stored
+ * in the database so unchanged documents can be dropped from a write.
+ */
+class DocumentHashes {
+
+    static final String HASH_KEY = "content-hash";
+
+    private final Map<String, String> cache;
+
+    DocumentHashes(int cacheSize) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Hashes the content of each document, records the hash in the document metadata, and returns only the documents
+     * whose hash is different from the one stored for the same URI.  Content that can't be read more than once is always written.
+     */
+    List<DocumentDescriptor> changed(List<DocumentDescriptor> docs, WriteMode mode, DocumentManager manager, Transaction transaction) {
+        Map<String, String> hashes = new HashMap<>();
+        for (DocumentDescriptor doc : docs) {
+            // Serialize once here and write the same bytes, so the hash matches exactly what is sent
+            byte[] content = doc.getUri() != null ? content(doc) : null;
+            if (content != null) {
+                String hash = hash(content, doc.getMetadata());
+                doc.setContent(new BytesHandle(content).withFormat(doc.getFormat()));
+                doc.getMetadata().getMetadataValues().add(HASH_KEY, hash);
+                hashes.put(doc.getUri(), hash);
+            }
+        }
+
+        Map<String, String> stored = new HashMap<>();
+        // Inside a transaction the cache may not reflect what the transaction can see, so always check the database
+        if (mode == WriteMode.SKIP_UNCHANGED_CACHED && transaction == null) {
+            hashes.keySet().forEach(uri -> {
+                String hash = cache.get(uri);
+                if (hash != null) stored.put(uri, hash);
+            });
+        }
+
+        List<String> unknown = hashes.keySet().stream()
+                .filter(uri -> !stored.containsKey(uri))
+                .collect(Collectors.toList());
+
+        if (!unknown.isEmpty()) {
+            stored.putAll(readStored(unknown, manager, transaction));
+        }
+
+        return docs.stream()
+                .filter(doc -> {
+                    String hash = hashes.get(doc.getUri());
+                    return hash == null || !hash.equals(stored.get(doc.getUri()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the bytes of the content of a document, writing content that is streamed when sent, i.e. entities serialized
+     * with streaming writes, into a buffer.
+     *
+     * @return The content, or null if it can't be read more than once.
+     */
+    static byte[] content(DocumentDescriptor doc) {
+        if (doc.getContent() instanceof BufferableHandle) {
+            return ((BufferableHandle) doc.getContent()).toBuffer();
+        } else if (doc.getContent() instanceof OutputStreamHandle && ((OutputStreamHandle) doc.getContent()).isResendable()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                ((OutputStreamHandle) doc.getContent()).get().write(out);
+            } catch (IOException e) {
+                throw new MarkLogicIOException(e);
+            }
+            return out.toByteArray();
+        }
+        return null;
+    }
+
+    /**
+     * Remember the hashes of documents that were successfully written.
+     */
+    void written(List<DocumentDescriptor> docs) {
+        docs.forEach(doc -> {
+            String hash = doc.getMetadata() != null ? doc.getMetadata().getMetadataValues().get(HASH_KEY) : null;
+            if (doc.getUri() != null && hash != null) cache.put(doc.getUri(), hash);
+        });
+    }
+
+    void evict(Collection<String> uris) {
+        if (!cache.isEmpty()) uris.forEach(cache::remove);
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    private Map<String, String> readStored(List<String> uris, DocumentManager manager, Transaction transaction) {
+        Map<String, String> stored = new HashMap<>();
+        // The same manager is used for the write afterwards, so put back the categories when done
+        Set<DocumentManager.Metadata> categories = new HashSet<>(manager.getMetadataCategories());
+        long pageLength = manager.getPageLength();
+        manager.setMetadataCategories(DocumentManager.Metadata.METADATAVALUES);
+        manager.setPageLength(uris.size());
+        try {
+            DocumentPage page = manager.readMetadata(transaction, uris.toArray(new String[0]));
+            for (DocumentRecord record : page) {
+                String hash = record.getMetadata(new DocumentMetadataHandle()).getMetadataValues().get(HASH_KEY);
+                if (hash != null) stored.put(record.getUri(), hash);
+            }
+        } finally {
+            manager.setMetadataCategories(categories);
+            manager.setPageLength(pageLength);
+        }
+        return stored;
+    }
+
+    static String hash(byte[] content, DocumentMetadataHandle metadata) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(content);
+            // All the metadata is written along with the content, so a change to any of it has to count as a change
+            if (metadata != null) digest.update(describe(metadata).getBytes(StandardCharsets.UTF_8));
+            return Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Describe the metadata in a form that doesn't depend on the order things were added in.  The stored hash itself is
+     * left out, since it is added after hashing.
+     */
+    private static String describe(DocumentMetadataHandle metadata) {
+        StringBuilder description = new StringBuilder();
+
+        description.append("collections:");
+        metadata.getCollections().stream().sorted().forEach(collection -> description.append(collection).append(','));
+
+        description.append("\npermissions:");
+        new TreeMap<>(metadata.getPermissions()).forEach((role, capabilities) -> description
+                .append(role).append('=')
+                .append(capabilities.stream().map(Enum::name).sorted().collect(Collectors.joining("|")))
+                .append(','));
+
+        description.append("\nquality:").append(metadata.getQuality());
+
+        description.append("\nvalues:");
+        new TreeMap<>(metadata.getMetadataValues()).forEach((key, value) -> {
+            if (!HASH_KEY.equals(key)) description.append(key).append('=').append(value).append(',');
+        });
+
+        description.append("\nproperties:");
+        metadata.getProperties().entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getKey().toString()))
+                .forEach(entry -> description.append(entry.getKey()).append('=').append(entry.getValue()).append(','));
+
+        return description.toString();
+    }
+}
@@ -3,12 +3,18 @@ package io.github.malteseduck.springframework.data.marklogic.core;
 import com.marklogic.client.document.DocumentPage;
 import com.marklogic.client.document.DocumentRecord;
 import com.marklogic.client.document.ServerTransform;
+import com.marklogic.client.expression.PlanBuilder;
 import com.marklogic.client.pojo.PojoQueryBuilder;
 import com.marklogic.client.query.StructuredQueryBuilder;
 import com.marklogic.client.query.StructuredQueryDefinition;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.QueryConversionService;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.MarkLogicConverter;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.QueryMapper;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.RangeIndex;
+import io.github.malteseduck.springframework.data.marklogic.core.index.WildcardPolicy;
+import io.github.malteseduck.springframework.data.marklogic.domain.GroupCounts;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetedPage;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
@@ -17,7 +23,12 @@ import org.springframework.data.domain.Sort;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * The central interface between you and the MarkLogic database.  Helper methods have been created for basic CRUD
@@ -92,6 +103,71 @@ public interface MarkLogicOperations {
      */
     void configure(Resource configuration) throws IOException;
 
+    /**
+     * Get the indexes that are configured on the connected database.  The configuration is read through the management
+     * API the first time and then cached until the configuration is changed through this interface.
+     *
+     * @return A snapshot of the configured indexes.
+     */
+    IndexCatalog getIndexCatalog();
+
+    /**
+     * Whether repository queries are planned using the configured indexes (see {@link #getIndexCatalog()}).  When they
+     * are, equality criteria on range indexed properties become range queries instead of value queries, and sorting on
+     * properties without an index is logged.
+     *
+     * @return True if queries should use the index catalog.
+     */
+    boolean isIndexAwareQuerying();
+
+    /**
+     * What index aware queries do with wildcarded terms that the wildcard indexes of the database can't resolve.
+     *
+     * @return The policy for unresolvable wildcards.
+     */
+    WildcardPolicy getWildcardPolicy();
+
+    /**
+     * The number of values above which an "In" criteria on the id of an entity is matched by the URIs of the documents
+     * instead of by the id values in the documents.
+     *
+     * @return The largest number of ids that are still matched with a value query.
+     */
+    int getDocumentQueryThreshold();
+
+    /**
+     * The search options used for queries that don't set them on the query itself or through the {@code @Document}
+     * annotation of the entity.  Count and exists queries, and queries sorted by an index, use "score-zero" unless a
+     * scoring option is set on the query, since relevance doesn't change their results.
+     *
+     * @return The default search option names, i.e. "unfiltered".
+     */
+    String[] getDefaultSearchOptions();
+
+    /**
+     * Add range indexes to the connected database.  The current index configuration is read and the new indexes are
+     * appended to it, so only the range index settings are changed.  This requires that the client was created with a
+     * user that has "admin" privileges.
+     *
+     * @param indexes The range indexes to add, which should not already be configured.
+     */
+    void addRangeIndexes(Collection<RangeIndex> indexes);
+
+    /**
+     * Generate a TDE template for the entity (see
+     * {@link io.github.malteseduck.springframework.data.marklogic.core.mapping.TdeTemplateGenerator}) and install it into
+     * the schemas database of the connected database, so the entities can be queried as rows.  The template is only
+     * written if it is different than the one already installed, since changing a template causes the documents it
+     * applies to be reindexed.  This requires that the client was created with a user that can evaluate code and
+     * insert templates (i.e. has the "tde-admin" role).
+     *
+     * @param entityClass The type class of an entity.
+     * @param <T>         The type of an entity.
+     *
+     * @return True if the template was installed or updated, false if it was already up to date.
+     */
+    <T> boolean installTemplate(Class<T> entityClass);
+
     // ========== Database Operation Execution =========== //
 
     /**
@@ -199,6 +275,32 @@ public interface MarkLogicOperations {
      */
     <T> List<T> write(List<T> entities, ServerTransform transform, String... collections);
 
+    // ========== Database Updates =========== //
+
+    /**
+     * Increment a numeric property of the entity with the specified ID.
+     *
+     * @see MarkLogicOperations#increment(List, Class, String, Number)
+     */
+    <T> void increment(Object id, Class<T> entityClass, String propertyPath, Number delta);
+
+    /**
+     * Increment a numeric property of each of the entities with the specified IDs.  Instead of reading the entity,
+     * modifying it, and writing it back this sends a partial update (see http://docs.marklogic.com/guide/java/document-operations#id_65611)
+     * with a "replace-apply" operation so the addition happens inside the database.  Concurrent increments of the same
+     * property are not lost, and no locks are held across round trips.
+     * <p>
+     * The property must already exist in the document for it to be updated.  Use a negative delta to decrement.
+     *
+     * @param ids          A list of IDs of entities.
+     * @param entityClass  The Java type of the entity.
+     * @param propertyPath Dot notation for the property to increment, i.e. "views" or "stats.views".  If the value starts
+     *                     with "/" then it is used as the full XPath to the property.
+     * @param delta        The amount to add to the current value.
+     * @param <T>          The type of the entity.
+     */
+    <T> void increment(List<?> ids, Class<T> entityClass, String propertyPath, Number delta);
+
     // ========== Database Reads =========== //
 
     /**
@@ -331,6 +433,32 @@ public interface MarkLogicOperations {
      */
     <T> Page<T> search(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass);
 
+    /**
+     * Queries just like the {@link MarkLogicOperations#search(StructuredQueryDefinition, long, int, Class)} method does,
+     * but the documents are only converted to entities as the stream gets to them.  The first entities can be used
+     * while the rest of a large page haven't been converted yet, and documents after the ones a short-circuiting
+     * operation stops at are never converted.
+     * <p>
+     * The stream holds on to the documents of the page until it is closed, so it should be used in a
+     * try-with-resources block.
+     *
+     * @param query       The query to constrain the results.
+     * @param start       The starting point in the result set (zero-based).
+     * @param limit       The max number of results to return.
+     * @param entityClass The entity type class.
+     * @param <T>         The type of entity.
+     *
+     * @return A stream of the entities of the documents matching the specified parameters, in order.
+     */
+    <T> Stream<T> searchStream(StructuredQueryDefinition query, long start, int limit, Class<T> entityClass);
+
+    /**
+     * Same as searchStream with int bounds, but allows paging/sorting based off Spring Pageable.
+     *
+     * @see MarkLogicOperations#searchStream(StructuredQueryDefinition, long, int, Class)
+     */
+    <T> Stream<T> searchStream(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass);
+
     /**
      * @see MarkLogicOperations#facetedSearch(StructuredQueryDefinition, long, int, Class)
      */
@@ -416,6 +544,50 @@ public interface MarkLogicOperations {
      */
     <T> InputStream stream(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass);
 
+    /**
+     * Queries just like the {@link MarkLogicOperations#search(StructuredQueryDefinition, Pageable, Class)} method does,
+     * but the results are returned to be copied as raw JSON to a response instead of being converted to entities.  This
+     * is for endpoints that just pass the documents on to their clients, so nothing is converted or buffered for each
+     * document.  The search runs right away, so the page information can be sent in headers before the documents are
+     * written.
+     *
+     * @param query       The query to constrain the results.
+     * @param pageable    The page of results to return.
+     * @param entityClass The entity type class, used to constrain the query to documents of the type.
+     * @param format      How the documents are put together in the response.
+     * @param <T>         The type of entity.
+     *
+     * @return The page of results, to be written with {@link RawSearchResponse#writeTo(OutputStream)}.
+     */
+    <T> RawSearchResponse searchRaw(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass, RawFormat format);
+
+    /**
+     * Same as searchRaw without an output, but writes the documents straight to the output.  The output isn't closed.
+     *
+     * @return The total number of documents that matched the query.
+     *
+     * @see MarkLogicOperations#searchRaw(StructuredQueryDefinition, Pageable, Class, RawFormat)
+     */
+    <T> long searchRaw(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass, RawFormat format, OutputStream out);
+
+    /**
+     * Same as searchRaw with an output stream, but writes the documents to a channel.  The channel isn't closed.
+     *
+     * @return The total number of documents that matched the query.
+     *
+     * @see MarkLogicOperations#searchRaw(StructuredQueryDefinition, Pageable, Class, RawFormat)
+     */
+    <T> long searchRaw(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass, RawFormat format, WritableByteChannel channel);
+
+    /**
+     * Writes the documents matching the query to the output as a JSON array, without constraining them to an entity type.
+     *
+     * @return The total number of documents that matched the query.
+     *
+     * @see MarkLogicOperations#searchRaw(StructuredQueryDefinition, Pageable, Class, RawFormat)
+     */
+    long searchRaw(StructuredQueryDefinition query, Pageable pageable, OutputStream out);
+
     // ========== Database Existence Checks =========== //
 
     /**
@@ -489,6 +661,117 @@ public interface MarkLogicOperations {
      */
     <T> long count(StructuredQueryDefinition query, Class<T> entityClass);
 
+    // ========== Database Lexicon Queries =========== //
+
+    /**
+     * @see MarkLogicOperations#aggregate(StructuredQueryDefinition, Class, String, Aggregate)
+     */
+    <T> Number aggregate(Class<T> entityClass, String propertyName, Aggregate aggregate);
+
+    /**
+     * Calculate an aggregate over the values of a property for all the entities that match the specified query.  The
+     * calculation is done by the database against the range index of the property (as configured through
+     * {@link io.github.malteseduck.springframework.data.marklogic.core.mapping.Indexed}), so no documents are read and
+     * only the single result is returned.  The range index must exist in the database.
+     *
+     * @param query        The structured query to use to match documents in the database.
+     * @param entityClass  The type class of an entity.
+     * @param propertyName The name of the entity property that has a range index, i.e. "age" or "pets.age".
+     * @param aggregate    The aggregate function to calculate.
+     * @param <T>          The type of an entity.
+     *
+     * @return The result of the aggregate, or null if there are no values to aggregate.
+     */
+    <T> Number aggregate(StructuredQueryDefinition query, Class<T> entityClass, String propertyName, Aggregate aggregate);
+
+    /**
+     * Count the entities that match the specified query grouped by the values of one or more properties, i.e. the
+     * number of people of each gender, or of each gender and occupation combination.  The counts come from the range
+     * indexes of the properties (values for one property, co-occurrences for more than one), so no documents are read.
+     * The range indexes must exist in the database.
+     *
+     * @param query         The structured query to use to match documents in the database.
+     * @param entityClass   The type class of an entity.
+     * @param propertyNames The names of the entity properties to group by.
+     * @param <T>           The type of an entity.
+     *
+     * @return The count of each group, most frequent first.  If grouping by more than one property the keys are lists
+     * of the property values.
+     */
+    <T> GroupCounts<Object> groupCount(StructuredQueryDefinition query, Class<T> entityClass, String... propertyNames);
+
+    /**
+     * @see MarkLogicOperations#distinctValues(StructuredQueryDefinition, Class, String, String, long, int)
+     */
+    <T, V> List<V> distinctValues(Class<T> entityClass, String propertyName, String prefix, int limit);
+
+    /**
+     * @see MarkLogicOperations#distinctValues(StructuredQueryDefinition, Class, String, String, long, int)
+     */
+    <T, V> List<V> distinctValues(StructuredQueryDefinition query, Class<T> entityClass, String propertyName, String prefix, int limit);
+
+    /**
+     * Get the distinct values of a property for the entities that match the specified query, in ascending order.  The
+     * values come straight from the range index (lexicon) of the property, so no documents are read, which makes this
+     * suitable for things like type-ahead suggestions.  The range index must exist in the database.
+     *
+     * @param query        The structured query to use to match documents in the database.
+     * @param entityClass  The type class of an entity.
+     * @param propertyName The name of the entity property that has a range index.
+     * @param prefix       If specified, only values that start with this are returned.  Only valid for string properties.
+     * @param start        The zero-based offset of the first value to return.
+     * @param limit        The maximum number of values to return.
+     * @param <T>          The type of an entity.
+     * @param <V>          The Java type of the property values, i.e. String for "xs:string" or Integer for "xs:int".
+     *
+     * @return The distinct values.
+     */
+    <T, V> List<V> distinctValues(StructuredQueryDefinition query, Class<T> entityClass, String propertyName, String prefix, long start, int limit);
+
+    // ========== Database Row Queries =========== //
+
+    /**
+     * @see MarkLogicOperations#rows(PlanBuilder.Plan, Class)
+     */
+    <R> List<R> rows(Function<PlanBuilder, PlanBuilder.Plan> plan, Class<R> rowClass);
+
+    /**
+     * Execute an Optic plan against the row indexes, i.e. the views defined by TDE templates, and bind each row to an
+     * instance of the specified class.  The plan can select, filter, group, order and join views, so calculations are
+     * done in the database and only the resulting rows are returned.  Rows are bound straight from the response using
+     * the column names without the schema/view qualifier, i.e. "test.Person.name" is bound to the "name" property.
+     * <p>
+     * For example:
+     * <pre>
+     * operations.rows(op -&gt; op.fromView("test", "Person")
+     *         .where(op.eq(op.col("gender"), op.xs.string("male")))
+     *         .groupBy(op.col("occupation"), op.count("total", "name")),
+     *     OccupationCount.class);
+     * </pre>
+     *
+     * @param plan     The plan to execute.
+     * @param rowClass The type to bind each row to, which can also be a {@link java.util.Map}.
+     * @param <R>      The type of a row.
+     *
+     * @return The rows, in the order returned by the plan.
+     */
+    <R> List<R> rows(PlanBuilder.Plan plan, Class<R> rowClass);
+
+    /**
+     * @see MarkLogicOperations#columns(PlanBuilder.Plan)
+     */
+    RowColumns columns(Function<PlanBuilder, PlanBuilder.Plan> plan);
+
+    /**
+     * Execute an Optic plan against the row indexes and return the rows as columns.  Numeric and boolean columns are
+     * held in primitive arrays, which makes this a compact way to bring back large numbers of rows for calculations.
+     *
+     * @param plan The plan to execute.
+     *
+     * @return The columns of the rows.
+     */
+    RowColumns columns(PlanBuilder.Plan plan);
+
     // ========== Database Deletion =========== //
 
     /**
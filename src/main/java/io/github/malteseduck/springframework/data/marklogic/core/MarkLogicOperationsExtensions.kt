@@ -1,10 +1,13 @@
 package io.github.malteseduck.springframework.data.marklogic.core
 
+import com.marklogic.client.expression.PlanBuilder
 import com.marklogic.client.query.StructuredQueryDefinition
+import io.github.malteseduck.springframework.data.marklogic.domain.GroupCounts
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetedPage
 import org.springframework.data.domain.Page
 import org.springframework.data.domain.Pageable
 import java.io.InputStream
+import java.util.function.Function
 
 @Suppress("EXTENSION_SHADOWED_BY_MEMBER")
 inline fun <reified T : Any> MarkLogicOperations.stream(query: StructuredQueryDefinition, start: Long = 0, length: Int = 10): InputStream =
@@ -55,6 +58,10 @@ inline fun <reified T : Any> MarkLogicOperations.count(query: StructuredQueryDef
 inline fun <reified T : Any> MarkLogicOperations.count(): Long =
     count(T::class.java)
 
+inline fun <reified T : Any> MarkLogicOperations.increment(id: Any, propertyPath: String, delta: Number) {
+    increment(id, T::class.java, propertyPath, delta)
+}
+
 inline fun <reified T : Any> MarkLogicOperations.dropCollection() {
     dropCollection(T::class.java)
 }
@@ -70,3 +77,18 @@ inline fun <reified T : Any> MarkLogicOperations.deleteByIds(ids: MutableList<An
 inline fun <reified T : Any> MarkLogicOperations.delete(query: StructuredQueryDefinition) {
     delete(query, T::class.java)
 }
+
+inline fun <reified T : Any> MarkLogicOperations.aggregate(query: StructuredQueryDefinition, propertyName: String, aggregate: Aggregate): Number? =
+    aggregate(query, T::class.java, propertyName, aggregate)
+
+inline fun <reified T : Any> MarkLogicOperations.groupCount(query: StructuredQueryDefinition, vararg propertyNames: String): GroupCounts<Any> =
+    groupCount(query, T::class.java, *propertyNames)
+
+inline fun <reified T : Any, V> MarkLogicOperations.distinctValues(query: StructuredQueryDefinition, propertyName: String, prefix: String? = null, limit: Int = 10): List<V> =
+    distinctValues(query, T::class.java, propertyName, prefix, limit)
+
+inline fun <reified R : Any> MarkLogicOperations.rows(noinline plan: (PlanBuilder) -> PlanBuilder.Plan): List<R> =
+    rows(Function<PlanBuilder, PlanBuilder.Plan> { plan(it) }, R::class.java)
+
+inline fun <reified R : Any> MarkLogicOperations.rows(plan: PlanBuilder.Plan): List<R> =
+    rows(plan, R::class.java)
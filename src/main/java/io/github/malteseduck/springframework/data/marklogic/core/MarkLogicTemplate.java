@@ -1,18 +1,27 @@
 package io.github.malteseduck.springframework.data.marklogic.core;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.DatabaseClientFactory;
 import com.marklogic.client.Transaction;
 import com.marklogic.client.document.*;
+import com.marklogic.client.expression.PlanBuilder;
 import com.marklogic.client.impl.DatabaseClientImpl;
 import com.marklogic.client.impl.PojoQueryBuilderImpl;
 import com.marklogic.client.impl.RESTServices;
 import com.marklogic.client.io.Format;
+import com.marklogic.client.io.InputStreamHandle;
 import com.marklogic.client.io.SearchHandle;
 import com.marklogic.client.io.StringHandle;
+import com.marklogic.client.io.TuplesHandle;
 import com.marklogic.client.io.ValuesHandle;
+import com.marklogic.client.io.marker.DocumentPatchHandle;
 import com.marklogic.client.pojo.PojoQueryBuilder;
 import com.marklogic.client.query.*;
+import com.marklogic.client.row.RowManager;
 import io.github.malteseduck.springframework.data.marklogic.TransactionHolder;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.DocumentDescriptor;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.QueryConversionService;
@@ -25,10 +34,17 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.JacksonMarkLogicConverter;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.MarkLogicConverter;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.QueryMapper;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.RangeIndex;
+import io.github.malteseduck.springframework.data.marklogic.core.index.WildcardPolicy;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.TdeTemplateGenerator;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.TypePersistenceStrategy;
 import io.github.malteseduck.springframework.data.marklogic.domain.ChunkRequest;
+import io.github.malteseduck.springframework.data.marklogic.domain.GroupCounts;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetedPage;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.CombinedQueryDefinition;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.DefaultMarkLogicQueryConversionService;
@@ -38,6 +54,7 @@ import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.io.Resource;
+import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.support.PersistenceExceptionTranslator;
 import org.springframework.data.domain.Page;
@@ -52,17 +69,25 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.SequenceInputStream;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static java.util.Arrays.asList;
@@ -82,6 +107,40 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
     private RESTServices services;
     private QueryMapper queryMapper;
     private StructuredQueryBuilder qb = new StructuredQueryBuilder();
+    private WriteMode writeMode = WriteMode.ALWAYS;
+    private DocumentHashes hashes = new DocumentHashes(DEFAULT_HASH_CACHE_SIZE);
+    private RangeOptions rangeOptions;
+    private RowReader rowReader = new RowReader();
+    private TdeTemplateGenerator templateGenerator = new TdeTemplateGenerator();
+    private int managementPort = DEFAULT_MANAGEMENT_PORT;
+    private String databaseName;
+    private volatile IndexCatalog indexCatalog;
+    private boolean indexAwareQuerying;
+    private WildcardPolicy wildcardPolicy = WildcardPolicy.WARN;
+    private int documentQueryThreshold = DEFAULT_DOCUMENT_QUERY_THRESHOLD;
+    private String[] defaultSearchOptions = new String[0];
+    private int parallelDecodeThreshold;
+    private ForkJoinPool decodePool = ForkJoinPool.commonPool();
+
+    private static final int DEFAULT_HASH_CACHE_SIZE = 10000;
+    private static final int GROUP_PAGE_SIZE = 1000;
+    private static final int DEFAULT_MANAGEMENT_PORT = 8002;
+    private static final int DEFAULT_DOCUMENT_QUERY_THRESHOLD = 100;
+    private static final String DEFAULT_DATABASE_NAME = "Documents";
+
+    // Compares with the installed template first so documents aren't reindexed when nothing changed
+    private static final String INSTALL_TEMPLATE =
+            "declareUpdate();\n" +
+            "var tde = require('/MarkLogic/tde.xqy');\n" +
+            "var uri, template;\n" +
+            "var doc = xdmp.toJSON(JSON.parse(template));\n" +
+            "var existing = fn.head(xdmp.eval('fn.doc(uri)', { uri: uri }, { database: xdmp.schemaDatabase() }));\n" +
+            "var result = 'unchanged';\n" +
+            "if (!existing || !fn.deepEqual(existing, doc)) {\n" +
+            "  tde.templateInsert(uri, doc, xdmp.defaultPermissions(), ['spring-data-marklogic']);\n" +
+            "  result = 'installed';\n" +
+            "}\n" +
+            "result;";
 
     /**
      * Create a template interface using the specified database client and the default entity converter and query conversion
@@ -119,6 +178,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
         this.queryConversionService = queryConversionService == null ? getDefaultQueryConverter() : queryConversionService;
         this.exceptionTranslator = new MarkLogicExceptionTranslator();
         this.queryMapper = new QueryMapper(this.converter);
+        this.rangeOptions = new RangeOptions(this.converter.getMappingContext());
 
         // Create a RestTemplate instance for use directly against the REST API because there are some things that
         // aren't fully supported in the client
@@ -168,6 +228,152 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
         this.applicationContext = applicationContext;
     }
 
+    /**
+     * Set how batches of documents are written.  By default every document is always written, but if most writes are of
+     * entities that haven't changed then {@link WriteMode#SKIP_UNCHANGED} or {@link WriteMode#SKIP_UNCHANGED_CACHED} can
+     * be used to keep them from being re-indexed, replicated, etc.
+     *
+     * @param writeMode The mode to use for all writes through this template.
+     */
+    public void setWriteMode(WriteMode writeMode) {
+        Assert.notNull(writeMode, "A write mode is required");
+        this.writeMode = writeMode;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * Set the maximum number of content hashes that are remembered when using {@link WriteMode#SKIP_UNCHANGED_CACHED}.
+     * Defaults to 10,000.
+     *
+     * @param size The number of document URIs for which to keep the last written hash.
+     */
+    public void setHashCacheSize(int size) {
+        this.hashes = new DocumentHashes(size);
+    }
+
+    /**
+     * Set the port of the management API, which is used to read and change the database configuration.  Defaults to
+     * 8002.
+     *
+     * @param managementPort The port of the "Manage" app server.
+     */
+    public void setManagementPort(int managementPort) {
+        this.managementPort = managementPort;
+    }
+
+    /**
+     * Set the name of the database that is configured through the management API.  Defaults to the database the client
+     * was created for, or the "Documents" database if the client uses the default database of the app server.
+     *
+     * @param databaseName The name of the database.
+     */
+    public void setDatabaseName(String databaseName) {
+        Assert.hasText(databaseName, "A database name is required");
+        this.databaseName = databaseName;
+    }
+
+    /**
+     * Set the indexes of the database instead of reading them through the management API, i.e. from a saved copy of
+     * the database properties.  The catalog is replaced if the configuration is changed through this template.
+     *
+     * @param indexCatalog The indexes configured on the database.
+     */
+    public void setIndexCatalog(IndexCatalog indexCatalog) {
+        this.indexCatalog = indexCatalog;
+    }
+
+    /**
+     * Set to plan repository queries using the indexes configured on the database.  Off by default, since reading the
+     * configuration requires a user with access to the management API.
+     *
+     * @param indexAwareQuerying True to use the index catalog when creating queries.
+     */
+    public void setIndexAwareQuerying(boolean indexAwareQuerying) {
+        this.indexAwareQuerying = indexAwareQuerying;
+    }
+
+    @Override
+    public boolean isIndexAwareQuerying() {
+        return indexAwareQuerying;
+    }
+
+    /**
+     * Set what index aware queries do with wildcarded terms that the wildcard indexes of the database can't resolve.
+     * Defaults to {@link WildcardPolicy#WARN}.
+     *
+     * @param wildcardPolicy The policy for unresolvable wildcards.
+     */
+    public void setWildcardPolicy(WildcardPolicy wildcardPolicy) {
+        Assert.notNull(wildcardPolicy, "A wildcard policy is required");
+        this.wildcardPolicy = wildcardPolicy;
+    }
+
+    @Override
+    public WildcardPolicy getWildcardPolicy() {
+        return wildcardPolicy;
+    }
+
+    /**
+     * Set the number of values above which an "In" criteria on the id of an entity is matched with a document query on
+     * the URIs of the documents rather than a value query on the id property.  The URI lexicon resolves the document
+     * query directly, where a value query with thousands of values has to be resolved value by value.  Defaults to 100.
+     *
+     * @param documentQueryThreshold The largest number of ids that are still matched with a value query.
+     */
+    public void setDocumentQueryThreshold(int documentQueryThreshold) {
+        Assert.isTrue(documentQueryThreshold >= 0, "The document query threshold must not be negative");
+        this.documentQueryThreshold = documentQueryThreshold;
+    }
+
+    @Override
+    public int getDocumentQueryThreshold() {
+        return documentQueryThreshold;
+    }
+
+    /**
+     * Set the search options to use for queries that don't set their own, i.e. "unfiltered" and "score-zero" when all the
+     * queries of the application can be resolved from the indexes and relevance doesn't matter.  Options set on the query,
+     * through {@code @Query(searchOptions = ...)}, or through {@code @Document(searchOptions = ...)} take precedence.
+     *
+     * @param defaultSearchOptions The search option names.
+     */
+    public void setDefaultSearchOptions(String... defaultSearchOptions) {
+        Assert.notNull(defaultSearchOptions, "Default search options must not be null");
+        this.defaultSearchOptions = defaultSearchOptions;
+    }
+
+    @Override
+    public String[] getDefaultSearchOptions() {
+        return defaultSearchOptions.clone();
+    }
+
+    /**
+     * Set the number of documents in a page of results above which the documents are converted to entities in parallel.
+     * Converting large documents can take longer than reading the page from the database, so spreading it over several
+     * threads shortens the response time.  Off by default.
+     *
+     * @param parallelDecodeThreshold The largest page that is still converted on the calling thread, or 0 to always
+     *                                convert on the calling thread.
+     */
+    public void setParallelDecodeThreshold(int parallelDecodeThreshold) {
+        Assert.isTrue(parallelDecodeThreshold >= 0, "The parallel decode threshold must not be negative");
+        this.parallelDecodeThreshold = parallelDecodeThreshold;
+    }
+
+    /**
+     * Set the pool that converts the documents of large pages when a parallel decode threshold is set.  Defaults to the
+     * common fork-join pool.
+     *
+     * @param decodePool The pool to convert documents in.
+     */
+    public void setDecodePool(ForkJoinPool decodePool) {
+        Assert.notNull(decodePool, "A decode pool is required");
+        this.decodePool = decodePool;
+    }
+
     private Transaction getCurrentTransaction() {
         TransactionHolder holder = (TransactionHolder) TransactionSynchronizationManager.getResource(client);
         Transaction tx = null;
@@ -243,19 +449,98 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
     @Override
     public void configure(Resource configuration) throws IOException {
         String json = new String(Files.readAllBytes(Paths.get(configuration.getURI())));
+        putProperties(json);
+    }
+
+    @Override
+    public IndexCatalog getIndexCatalog() {
+        IndexCatalog catalog = indexCatalog;
+        if (catalog == null) {
+            catalog = IndexCatalog.fromProperties(getProperties());
+            indexCatalog = catalog;
+        }
+        return catalog;
+    }
+
+    @Override
+    public void addRangeIndexes(Collection<RangeIndex> indexes) {
+        if (indexes.isEmpty()) return;
+
+        // Read the current configuration rather than using the cached catalog so indexes added by others aren't lost
+        JsonNode properties = getProperties();
+        ObjectNode changes = JsonNodeFactory.instance.objectNode();
+        for (RangeIndex index : indexes) {
+            String name = index.getType() == IndexType.PATH ? "range-path-index" : "range-element-index";
+            if (!changes.has(name)) {
+                changes.set(name, properties.path(name).isArray() ? properties.get(name).deepCopy() : JsonNodeFactory.instance.arrayNode());
+            }
+            ((ArrayNode) changes.get(name)).add(index.toJson());
+        }
+
+        putProperties(changes.toString());
+        log.info("Added range indexes {} to {}", indexes, getDatabaseName());
+    }
+
+    private String getDatabaseName() {
+        if (databaseName != null) return databaseName;
+        return StringUtils.hasText(client.getDatabase()) ? client.getDatabase() : DEFAULT_DATABASE_NAME;
+    }
+
+    private URI propertiesUri() {
+        // Need to use the management port for configuring the database
+        return new UriTemplate("http://{host}:{port}/manage/v2/databases/{database}/properties?format=json")
+                .expand(client.getHost(), managementPort, getDatabaseName());
+    }
+
+    private JsonNode getProperties() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(singletonList(MediaType.APPLICATION_JSON));
+
+        return restTemplate.exchange(
+                propertiesUri(),
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                JsonNode.class
+        ).getBody();
+    }
+
+    private void putProperties(String json) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
 
-        // TODO: Make management port configurable? Or try using services to post?
-        // Need to use the management port for configuring the database
-        URI configUri = new UriTemplate("http://{host}:{port}/manage/v2/databases/Documents/properties").expand(client.getHost(), 8002);
+        try {
+            restTemplate.exchange(
+                    propertiesUri(),
+                    HttpMethod.PUT,
+                    new HttpEntity<>(json, headers),
+                    Void.class
+            );
+        } finally {
+            // The configuration (most likely) changed, so the indexes need to be read again
+            indexCatalog = null;
+        }
+    }
 
-        restTemplate.exchange(
-                configUri,
-                HttpMethod.PUT,
-                new HttpEntity<>(json, headers),
-                Void.class
+    @Override
+    public <T> boolean installTemplate(Class<T> entityClass) {
+        MarkLogicPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(entityClass);
+        if (entity == null)
+            throw new InvalidDataAccessApiUsageException(String.format("Cannot determine entity type from %s", entityClass.getName()));
+
+        String uri = templateGenerator.getUri(entity);
+        String template = templateGenerator.generate(entity).toString();
+
+        String result = executeWithClient((client, transaction) ->
+                client.newServerEval()
+                        .javascript(INSTALL_TEMPLATE)
+                        .addVariable("uri", uri)
+                        .addVariable("template", template)
+                        .evalAs(String.class)
         );
+
+        boolean installed = "installed".equals(result);
+        if (installed) log.info("Installed TDE template {} for {}", uri, entityClass.getName());
+        return installed;
     }
 
     @Override
@@ -305,34 +590,89 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
                         .map(entity -> {
                             final DocumentDescriptor doc = new DocumentDescriptor();
                             this.converter.write(entity, doc);
+                            if (collections.length > 0) {
+                                // If collections are specified then those are the ones that will be used - we expect things to be how we specify
+                                doc.getMetadata().getCollections().clear();
+                                doc.setMetadata(doc.getMetadata().withCollections(collections));
+                            }
                             return doc;
                         })
                         .collect(Collectors.toList());
 
         return execute((manager, transaction) -> {
             if (!docs.isEmpty()) {
-                // TODO: Do we have a case where we are saving entities of different types all in the same operation?
-                DocumentWriteSet writeSet = manager.newWriteSet();
-                for (DocumentDescriptor doc : docs) {
-                    if (collections.length > 0) {
-                        // If collections are specified then those are the ones that will be used - we expect things to be how we specify
-                        doc.getMetadata().getCollections().clear();
-                        doc.setMetadata(doc.getMetadata().withCollections(collections));
+                List<DocumentDescriptor> toWrite = writeMode == WriteMode.ALWAYS
+                        ? docs
+                        : hashes.changed(docs, writeMode, manager, transaction);
+
+                if (!toWrite.isEmpty()) {
+                    // TODO: Do we have a case where we are saving entities of different types all in the same operation?
+                    DocumentWriteSet writeSet = manager.newWriteSet();
+                    for (DocumentDescriptor doc : toWrite) {
+                        if (doc.getUri() != null) {
+                            writeSet.add(doc.getUri(), doc.getMetadata(), doc.getContent());
+                        } else {
+                            DocumentUriTemplate template = manager.newDocumentUriTemplate(doc.getFormat().toString());
+                            writeSet.add((String) null, doc.getMetadata(), doc.getContent());
+                        }
                     }
+                    manager.write(writeSet, writeTransform, transaction);
+                }
 
-                    if (doc.getUri() != null) {
-                        writeSet.add(doc.getUri(), doc.getMetadata(), doc.getContent());
-                    } else {
-                        DocumentUriTemplate template = manager.newDocumentUriTemplate(doc.getFormat().toString());
-                        writeSet.add((String) null, doc.getMetadata(), doc.getContent());
-                    }
+                // Only trust the hashes once they are committed, otherwise a rollback would leave the cache wrong
+                if (writeMode == WriteMode.SKIP_UNCHANGED_CACHED && transaction == null) {
+                    hashes.written(docs);
+                } else {
+                    hashes.evict(docs.stream().map(DocumentDescriptor::getUri).collect(Collectors.toList()));
                 }
-                manager.write(writeSet, writeTransform, transaction);
             }
             return entities;
         });
     }
 
+    @Override
+    public <T> void increment(Object id, Class<T> entityClass, String propertyPath, Number delta) {
+        increment(singletonList(id), entityClass, propertyPath, delta);
+    }
+
+    @Override
+    public <T> void increment(List<?> ids, Class<T> entityClass, String propertyPath, Number delta) {
+        Assert.notNull(entityClass, "Entity class is required to determine the document format");
+        Assert.hasText(propertyPath, "A property path is required");
+        Assert.notNull(delta, "A delta is required");
+
+        MarkLogicPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(entityClass);
+        if (entity == null)
+            throw new InvalidDataAccessApiUsageException(String.format("Cannot determine entity type from %s", entityClass.getName()));
+
+        final List<String> uris = converter.getDocumentUris(ids, entityClass);
+        final String path = toPatchPath(propertyPath, entity.getDocumentFormat());
+
+        execute((manager, transaction) -> {
+            // The same patch applies to every document, so only build it once
+            DocumentPatchBuilder builder = (DocumentPatchBuilder) manager.newPatchBuilder(entity.getDocumentFormat());
+            builder.replaceApply(path, builder.call().add(delta));
+            if (writeMode != WriteMode.ALWAYS) {
+                // The stored hash no longer matches the content, so remove it to make sure the next write isn't skipped
+                builder.deleteMetadataValue(DocumentHashes.HASH_KEY);
+            }
+            DocumentPatchHandle patch = builder.build();
+
+            // The REST API only supports patching one document at a time, so we need to send a request for each
+            uris.forEach(uri -> manager.patch(uri, patch, transaction));
+            hashes.evict(uris);
+            return null;
+        });
+    }
+
+    private String toPatchPath(String propertyPath, Format format) {
+        if (propertyPath.startsWith("/")) return propertyPath;
+
+        String path = "/" + propertyPath.replace('.', '/');
+        // XML documents have a root element named after the type, so skip over it
+        return Format.XML.equals(format) ? "/*" + path : path;
+    }
+
     @Override
     public <T> T read(Object id, Class<T> entityClass) {
         List<T> results = read(singletonList(id), entityClass);
@@ -414,7 +754,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
         return execute((manager, transaction) -> {
             if (length >= 0) manager.setPageLength(length);
 
-            QueryDefinition finalQuery = converter.wrapQuery(query, null);
+            QueryDefinition finalQuery = converter.wrapQuery(searchOptions(query, null), null);
 
             return manager.search(finalQuery, start + 1, transaction);
         });
@@ -433,7 +773,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
         return execute((manager, transaction) -> {
             if (limit >= 0) manager.setPageLength(limit);
 
-            QueryDefinition finalQuery = queryMapper.getMappedQuery(query, entityClass);
+            QueryDefinition finalQuery = queryMapper.getMappedQuery(searchOptions(query, entityClass), entityClass);
             DocumentPage docPage = manager.search(finalQuery, start + 1, transaction);
 
             List<T> results = toEntityList(entityClass, docPage);
@@ -451,6 +791,26 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
                 entityClass);
     }
 
+    @Override
+    public <T> Stream<T> searchStream(StructuredQueryDefinition query, long start, int limit, Class<T> entityClass) {
+        DocumentPage docPage = execute((manager, transaction) -> {
+            if (limit >= 0) manager.setPageLength(limit);
+
+            QueryDefinition finalQuery = queryMapper.getMappedQuery(searchOptions(query, entityClass), entityClass);
+            return manager.search(finalQuery, start + 1, transaction);
+        });
+        return toEntityStream(entityClass, docPage);
+    }
+
+    @Override
+    public <T> Stream<T> searchStream(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass) {
+        return searchStream(
+                combine(query).sort(pageable.getSort()),
+                pageable.getOffset(),
+                pageable.getPageSize(),
+                entityClass);
+    }
+
     @Override
     public <T> FacetedPage<T> facetedSearch(StructuredQueryDefinition query, long start, Class<T> entityClass) {
         return facetedSearch(query, start, -1, entityClass);
@@ -463,7 +823,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
 
             manager.setSearchView(QueryManager.QueryView.FACETS);
             SearchHandle results = new SearchHandle();
-            QueryDefinition finalQuery = queryMapper.getMappedQuery(query, entityClass);
+            QueryDefinition finalQuery = queryMapper.getMappedQuery(searchOptions(query, entityClass), entityClass);
 
             DocumentPage docPage = manager.search(finalQuery, start + 1, results, transaction);
 
@@ -520,7 +880,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
         return execute((manager, transaction) -> {
             if (length >= 0) manager.setPageLength(length);
 
-            QueryDefinition finalQuery = queryMapper.getMappedQuery(query, entityClass);
+            QueryDefinition finalQuery = queryMapper.getMappedQuery(searchOptions(query, entityClass), entityClass);
 
             DocumentPage page = manager.search(finalQuery, start + 1, transaction);
 
@@ -542,6 +902,43 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
                 entityClass);
     }
 
+    @Override
+    public <T> RawSearchResponse searchRaw(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass, RawFormat format) {
+        StructuredQueryDefinition sorted = combine(query).sort(pageable.getSort());
+
+        DocumentPage page = execute((manager, transaction) -> {
+            if (pageable.isPaged()) manager.setPageLength(pageable.getPageSize());
+
+            QueryDefinition finalQuery = entityClass != null
+                    ? queryMapper.getMappedQuery(searchOptions(sorted, entityClass), entityClass)
+                    : converter.wrapQuery(searchOptions(sorted, null), null);
+            return manager.search(finalQuery, (pageable.isPaged() ? pageable.getOffset() : 0) + 1, transaction);
+        });
+        return new RawSearchResponse(page, format);
+    }
+
+    @Override
+    public <T> long searchRaw(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass, RawFormat format, OutputStream out) {
+        RawSearchResponse results = searchRaw(query, pageable, entityClass, format);
+        try {
+            results.writeTo(out);
+        } catch (IOException e) {
+            throw new DataRetrievalFailureException("Unable to write the search results", e);
+        }
+        return results.getTotalSize();
+    }
+
+    @Override
+    public <T> long searchRaw(StructuredQueryDefinition query, Pageable pageable, Class<T> entityClass, RawFormat format, WritableByteChannel channel) {
+        // Closing the stream would close the channel, so it is left open for the caller
+        return searchRaw(query, pageable, entityClass, format, Channels.newOutputStream(channel));
+    }
+
+    @Override
+    public long searchRaw(StructuredQueryDefinition query, Pageable pageable, OutputStream out) {
+        return searchRaw(query, pageable, null, RawFormat.JSON_ARRAY, out);
+    }
+
     @Override
     public boolean exists(String uri) {
         return execute((manager, transaction) -> singletonList(String.valueOf(uri))
@@ -557,7 +954,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
 
     @Override
     public <T> boolean exists(StructuredQueryDefinition query, Class<T> entityClass) {
-        Page<T> page = search(query, 0, 0, entityClass);
+        Page<T> page = search(scoreFree(query), 0, 0, entityClass);
         return page.getTotalElements() > 0;
     }
 
@@ -578,7 +975,218 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
 
     @Override
     public <T> long count(StructuredQueryDefinition query, Class<T> entityClass) {
-        return search(query, 0, 0, entityClass).getTotalElements();
+        return search(scoreFree(query), 0, 0, entityClass).getTotalElements();
+    }
+
+    @Override
+    public <T> Number aggregate(Class<T> entityClass, String propertyName, Aggregate aggregate) {
+        return aggregate(qb.and(), entityClass, propertyName, aggregate);
+    }
+
+    @Override
+    public <T> Number aggregate(StructuredQueryDefinition query, Class<T> entityClass, String propertyName, Aggregate aggregate) {
+        Assert.notNull(entityClass, "Entity class is required to determine the range index");
+        Assert.hasText(propertyName, "A property name is required");
+        Assert.notNull(aggregate, "An aggregate function is required");
+
+        final String values = rangeOptions.values("aggregate", entityClass, propertyName);
+
+        return executeWithClient((client, transaction) -> {
+            QueryManager qryMgr = client.newQueryManager();
+            ValuesDefinition valDef = valuesDefinition(qryMgr, query, entityClass, "aggregate", values);
+            valDef.setAggregate(aggregate.toString());
+            // Only the aggregate is needed, so don't bring back the values themselves
+            valDef.setView("aggregate");
+
+            AggregateResult result = qryMgr.values(valDef, new ValuesHandle(), transaction).getAggregate(aggregate.toString());
+            return result != null && StringUtils.hasText(result.getValue()) ? new BigDecimal(result.getValue()) : null;
+        });
+    }
+
+    @Override
+    public <T> GroupCounts<Object> groupCount(StructuredQueryDefinition query, Class<T> entityClass, String... propertyNames) {
+        Assert.notNull(entityClass, "Entity class is required to determine the range indexes");
+        Assert.notEmpty(propertyNames, "At least one property name is required");
+
+        // Have the database order by the counts so the results are already the most frequent first
+        final String option = propertyNames.length == 1
+                ? rangeOptions.values("group", entityClass, propertyNames[0], "frequency-order", "descending")
+                : rangeOptions.tuples("group", entityClass, propertyNames, "frequency-order", "descending");
+
+        return executeWithClient((client, transaction) -> {
+            QueryManager qryMgr = client.newQueryManager();
+            qryMgr.setPageLength(GROUP_PAGE_SIZE);
+            ValuesDefinition valDef = valuesDefinition(qryMgr, query, entityClass, "group", option);
+
+            GroupCounts.Builder<Object> counts = GroupCounts.builder();
+            long start = 1;
+            int returned;
+            do {
+                if (propertyNames.length == 1) {
+                    ValuesHandle page = qryMgr.values(valDef, new ValuesHandle(), start, transaction);
+                    CountedDistinctValue[] values = page.getValues();
+                    for (CountedDistinctValue value : values) {
+                        counts.add(value.get(page.getType(), Object.class), value.getCount());
+                    }
+                    returned = values.length;
+                } else {
+                    Tuple[] tuples = qryMgr.tuples(valDef, new TuplesHandle(), start, transaction).getTuples();
+                    for (Tuple tuple : tuples) {
+                        List<Object> key = new ArrayList<>(tuple.getValues().length);
+                        for (TypedDistinctValue value : tuple.getValues()) {
+                            key.add(value.get(Object.class));
+                        }
+                        counts.add(key, tuple.getCount());
+                    }
+                    returned = tuples.length;
+                }
+                start += returned;
+            } while (returned == GROUP_PAGE_SIZE);
+
+            return counts.build();
+        });
+    }
+
+    @Override
+    public <T, V> List<V> distinctValues(Class<T> entityClass, String propertyName, String prefix, int limit) {
+        return distinctValues(qb.and(), entityClass, propertyName, prefix, 0, limit);
+    }
+
+    @Override
+    public <T, V> List<V> distinctValues(StructuredQueryDefinition query, Class<T> entityClass, String propertyName, String prefix, int limit) {
+        return distinctValues(query, entityClass, propertyName, prefix, 0, limit);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, V> List<V> distinctValues(StructuredQueryDefinition query, Class<T> entityClass, String propertyName, String prefix, long start, int limit) {
+        Assert.notNull(entityClass, "Entity class is required to determine the range index");
+        Assert.hasText(propertyName, "A property name is required");
+        Assert.isTrue(limit > 0, "The limit must be greater than zero");
+
+        final String option = rangeOptions.values("distinct", entityClass, propertyName, "item-order", "ascending");
+        final boolean hasPrefix = StringUtils.hasText(prefix);
+
+        // Limiting the matched documents to those with a value that starts with the prefix means the lexicon only has to
+        // look at those, but documents with more than one value could bring back others, so those are dropped below.
+        // Without a codepoint collation index to match the prefix with, all the values are read and filtered instead.
+        final StructuredQueryDefinition startsWith = hasPrefix
+                ? rangeOptions.startsWith(entityClass, propertyName, prefix, indexAwareQuerying ? getIndexCatalog() : null)
+                : null;
+        final StructuredQueryDefinition scoped = startsWith != null ? combine(query).and(startsWith) : query;
+
+        return executeWithClient((client, transaction) -> {
+            QueryManager qryMgr = client.newQueryManager();
+            qryMgr.setPageLength(limit);
+            ValuesDefinition valDef = valuesDefinition(qryMgr, scoped, entityClass, "distinct", option);
+
+            List<V> distinct = new ArrayList<>(Math.min(limit, 1000));
+            long position = start + 1;
+            int returned;
+            do {
+                ValuesHandle page = qryMgr.values(valDef, new ValuesHandle(), position, transaction);
+                CountedDistinctValue[] values = page.getValues();
+                for (CountedDistinctValue value : values) {
+                    Object converted = value.get(page.getType(), Object.class);
+                    if (!hasPrefix || converted.toString().startsWith(prefix)) {
+                        distinct.add((V) converted);
+                        if (distinct.size() == limit) break;
+                    }
+                }
+                returned = values.length;
+                position += returned;
+            } while (hasPrefix && returned == limit && distinct.size() < limit);
+
+            return distinct;
+        });
+    }
+
+    /**
+     * Add the default search options of the entity and the template to the query.  Those already set on the query take
+     * precedence, and queries sorted by an index don't need to calculate relevance.
+     */
+    private StructuredQueryDefinition searchOptions(StructuredQueryDefinition query, Class<?> entityClass) {
+        CombinedQueryDefinition combined = combine(query);
+        if (combined.isSorted()) combined.defaultSearchOptions("score-zero");
+
+        MarkLogicPersistentEntity<?> entity = entityClass != null ? converter.getMappingContext().getPersistentEntity(entityClass) : null;
+        if (entity != null) combined.defaultSearchOptions(entity.getSearchOptions());
+
+        return combined.defaultSearchOptions(defaultSearchOptions);
+    }
+
+    /**
+     * Counting doesn't need relevance, so skip scoring unless the query already configures it.
+     */
+    private StructuredQueryDefinition scoreFree(StructuredQueryDefinition query) {
+        return combine(query).defaultSearchOptions("score-zero");
+    }
+
+    /**
+     * Create a values definition that uses the specified values/tuples option, scoped to the entity and query.
+     */
+    private ValuesDefinition valuesDefinition(QueryManager qryMgr, StructuredQueryDefinition query, Class<?> entityClass, String name, String option) {
+        CombinedQueryDefinition combined = combine(query).options(option);
+        combined = (CombinedQueryDefinition) queryMapper.getMappedQuery(combined, entityClass);
+
+        ValuesDefinition valDef = qryMgr.newValuesDefinition(name);
+        valDef.setQueryDefinition(
+                qryMgr.newRawCombinedQueryDefinition(new StringHandle(combined.serialize()).withFormat(Format.XML))
+        );
+        return valDef;
+    }
+
+    @Override
+    public <R> List<R> rows(Function<PlanBuilder, PlanBuilder.Plan> plan, Class<R> rowClass) {
+        Assert.notNull(plan, "A plan is required");
+        PlanBuilder.Plan built = executeWithClient((client, transaction) -> plan.apply(client.newRowManager().newPlanBuilder()));
+        return rows(built, rowClass);
+    }
+
+    @Override
+    public <R> List<R> rows(PlanBuilder.Plan plan, Class<R> rowClass) {
+        Assert.notNull(plan, "A plan is required");
+        Assert.notNull(rowClass, "A row class is required");
+
+        return executeWithClient((client, transaction) -> {
+            RowManager rowMgr = rowManager(client, RowManager.RowStructure.OBJECT);
+            try (InputStreamHandle handle = rowMgr.resultDoc(plan, new InputStreamHandle(), transaction)) {
+                return rowReader.readRows(handle.get(), rowClass);
+            } catch (IOException e) {
+                throw new DataRetrievalFailureException("Unable to read the rows of the plan", e);
+            }
+        });
+    }
+
+    @Override
+    public RowColumns columns(Function<PlanBuilder, PlanBuilder.Plan> plan) {
+        Assert.notNull(plan, "A plan is required");
+        PlanBuilder.Plan built = executeWithClient((client, transaction) -> plan.apply(client.newRowManager().newPlanBuilder()));
+        return columns(built);
+    }
+
+    @Override
+    public RowColumns columns(PlanBuilder.Plan plan) {
+        Assert.notNull(plan, "A plan is required");
+
+        return executeWithClient((client, transaction) -> {
+            RowManager rowMgr = rowManager(client, RowManager.RowStructure.ARRAY);
+            try (InputStreamHandle handle = rowMgr.resultDoc(plan, new InputStreamHandle(), transaction)) {
+                return rowReader.readColumns(handle.get());
+            } catch (IOException e) {
+                throw new DataRetrievalFailureException("Unable to read the rows of the plan", e);
+            }
+        });
+    }
+
+    /**
+     * Create a row manager that puts the column types in the header, so the values in the rows are plain JSON values.
+     */
+    private RowManager rowManager(DatabaseClient client, RowManager.RowStructure structure) {
+        RowManager rowMgr = client.newRowManager();
+        rowMgr.setDatatypeStyle(RowManager.RowSetPart.HEADER);
+        rowMgr.setRowStructureStyle(structure);
+        return rowMgr;
     }
 
     @Override
@@ -590,6 +1198,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
     public void deleteByUris(List<String> uris) {
         execute((manager, transaction) -> {
             manager.delete(transaction, uris.toArray(new String[0]));
+            hashes.evict(uris);
             return null;
         });
     }
@@ -601,17 +1210,15 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
 
     @Override
     public <T> void delete(List<T> entities) {
-        List<String> uris =
-                entities.stream()
-                        .map(entity -> {
-                            final DocumentDescriptor doc = new DocumentDescriptor();
-                            this.converter.write(entity, doc);
-                            return doc.getUri();
-                        })
-                        .collect(Collectors.toList());
+        // Only the URIs are needed, so the entities aren't serialized
+        List<String> uris = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            uris.add(converter.getDocumentUri(entity));
+        }
 
         execute((manager, transaction) -> {
             manager.delete(transaction, uris.toArray(new String[0]));
+            hashes.evict(uris);
             return null;
         });
     }
@@ -620,14 +1227,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
     public <T> void delete(StructuredQueryDefinition query, Class<T> entityClass) {
         executeWithClient((client, transaction) -> {
             QueryManager qryMgr = client.newQueryManager();
-            CombinedQueryDefinition combined =
-                    combine(query).options("<values name='uris'><uri/></values>");
-
-            combined = (CombinedQueryDefinition) queryMapper.getMappedQuery(combined, entityClass);
-            ValuesDefinition valDef = qryMgr.newValuesDefinition("uris");
-            valDef.setQueryDefinition(
-                    qryMgr.newRawCombinedQueryDefinition(new StringHandle(combined.serialize()).withFormat(Format.XML))
-            );
+            ValuesDefinition valDef = valuesDefinition(qryMgr, query, entityClass, "uris", "<values name='uris'><uri/></values>");
 
             ValuesHandle results = qryMgr.values(valDef, new ValuesHandle(), transaction);
 
@@ -638,6 +1238,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
 
             if (!uris.isEmpty()) {
                 client.newDocumentManager().delete(transaction, uris.toArray(new String[0]));
+                hashes.evict(uris);
             }
 
             return null;
@@ -650,6 +1251,7 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
 
         execute((manager, transaction) -> {
             manager.delete(transaction, uris.toArray(new String[0]));
+            hashes.evict(uris);
             return null;
         });
     }
@@ -663,6 +1265,8 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
                 deleteQuery.setCollections(collection);
                 manager.delete(deleteQuery, transaction);
             });
+            // No way to know which documents were in the collections, so forget everything
+            hashes.clear();
             return null;
         });
     }
@@ -721,11 +1325,29 @@ public class MarkLogicTemplate implements MarkLogicOperations, ApplicationContex
     }
 
     protected  <T> List<T> toEntityList(Class<T> entityClass, DocumentPage page) {
+        if (parallelDecodeThreshold > 0 && page.size() > parallelDecodeThreshold) {
+            final List<DocumentRecord> records = toRecordList(page);
+            // Parallel streams of a list keep the order of the list when collected
+            return decodePool.submit(() -> records.parallelStream()
+                    .map(item -> converter.read(entityClass, new DocumentDescriptor(item)))
+                    .collect(Collectors.toList())
+            ).join();
+        }
+
         final List<T> results = new ArrayList<>();
         page.iterator().forEachRemaining(item -> results.add(converter.read(entityClass, new DocumentDescriptor(item))));
         return results;
     }
 
+    protected <T> Stream<T> toEntityStream(Class<T> entityClass, DocumentPage page) {
+        // Convert each document as the stream gets to it rather than the whole page up front
+        Spliterator<DocumentRecord> records = Spliterators.spliterator(page.iterator(), page.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(records, false)
+                .map(item -> converter.read(entityClass, new DocumentDescriptor(item)))
+                .onClose(page::close);
+    }
+
     protected List<DocumentRecord> toRecordList(DocumentPage page) {
         final List<DocumentRecord> results = new ArrayList<>();
         page.iterator().forEachRemaining(results::add);
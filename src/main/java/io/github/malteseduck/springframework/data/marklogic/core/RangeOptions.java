@@ -0,0 +1,148 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.io.Format;
+import com.marklogic.client.query.StructuredQueryBuilder;
+import com.marklogic.client.query.StructuredQueryBuilder.Operator;
+import com.marklogic.client.query.StructuredQueryDefinition;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.RangeIndex;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.QueryType;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.PropertyIndex;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mapping.MappingException;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.util.StringUtils;
+
+import static java.lang.String.format;
+
+/**
+ * Builds the search options that describe the range index of an entity property, based on how it is configured with
+ * {@link io.github.malteseduck.springframework.data.marklogic.core.mapping.Indexed}, so lexicon calls (values, tuples,
+ * aggregates) can be made against it.
+ */
+class RangeOptions {
+
+    private final MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> mappingContext;
+    private final StructuredQueryBuilder qb = new StructuredQueryBuilder();
+
+    RangeOptions(MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> mappingContext) {
+        this.mappingContext = mappingContext;
+    }
+
+    /**
+     * Create a <code>&lt;range&gt;</code> option for the specified property of an entity, i.e.
+     * <code>&lt;range type='xs:int'&gt;&lt;path-index&gt;/age&lt;/path-index&gt;&lt;/range&gt;</code>
+     */
+    String range(Class<?> entityClass, String propertyName) {
+        MarkLogicPersistentEntity<?> entity = entity(entityClass);
+        MarkLogicPersistentProperty property = property(entityClass, propertyName);
+
+        String reference;
+        if (isPathIndexed(property)) {
+            reference = format("<path-index>%s</path-index>", property.getPath());
+        } else if (Format.XML.equals(entity.getDocumentFormat())) {
+            reference = format("<element ns='' name='%s'/>", property.getFieldName());
+        } else {
+            reference = format("<json-property>%s</json-property>", property.getFieldName());
+        }
+
+        return format("<range type='%s'>%s</range>", type(property), reference);
+    }
+
+    /**
+     * Create a range query that matches documents where the value of a string property starts with the specified
+     * prefix, using the same range index that the lexicon calls use.  Everything that starts with a prefix only sorts
+     * between it and the prefix with its last character incremented in the codepoint collation, so the range is only
+     * created if the catalog has an index on the property with that collation.
+     *
+     * @param catalog The indexes configured on the database, or null if they aren't known.
+     *
+     * @return The query, or null if there is no codepoint collation index to match the prefix with.
+     */
+    StructuredQueryDefinition startsWith(Class<?> entityClass, String propertyName, String prefix, IndexCatalog catalog) {
+        MarkLogicPersistentEntity<?> entity = entity(entityClass);
+        MarkLogicPersistentProperty property = property(entityClass, propertyName);
+
+        String type = type(property);
+        if (!"xs:string".equals(type))
+            throw new InvalidDataAccessApiUsageException(String.format("Property %s must be a string to match a prefix", propertyName));
+
+        int last = prefix.length() - 1;
+        RangeIndex configured = RangeIndex.forProperty(property);
+        if (catalog == null || configured == null || prefix.charAt(last) == Character.MAX_VALUE
+                || !catalog.contains(configured.withCollation(RangeIndex.CODEPOINT_COLLATION))) {
+            return null;
+        }
+
+        StructuredQueryBuilder.RangeIndex index;
+        if (isPathIndexed(property)) {
+            index = qb.pathIndex(property.getPath());
+        } else if (Format.XML.equals(entity.getDocumentFormat())) {
+            index = qb.element(property.getFieldName());
+        } else {
+            index = qb.jsonProperty(property.getFieldName());
+        }
+
+        String upper = prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+        return qb.and(
+                qb.range(index, type, RangeIndex.CODEPOINT_COLLATION, Operator.GE, prefix),
+                qb.range(index, type, RangeIndex.CODEPOINT_COLLATION, Operator.LT, upper)
+        );
+    }
+
+    private MarkLogicPersistentEntity<?> entity(Class<?> entityClass) {
+        MarkLogicPersistentEntity<?> entity = mappingContext.getPersistentEntity(entityClass);
+        if (entity == null)
+            throw new InvalidDataAccessApiUsageException(String.format("Cannot determine entity type from %s", entityClass.getName()));
+        return entity;
+    }
+
+    private MarkLogicPersistentProperty property(Class<?> entityClass, String propertyName) {
+        try {
+            return mappingContext.getPersistentPropertyPath(propertyName, entityClass).getRequiredLeafProperty();
+        } catch (MappingException | IllegalArgumentException ex) {
+            throw new InvalidDataAccessApiUsageException(String.format("No property %s found on %s", propertyName, entityClass.getName()), ex);
+        }
+    }
+
+    private String type(MarkLogicPersistentProperty property) {
+        try {
+            return new PropertyIndex(null, QueryType.RANGE).withProperty(property).getRangeIndexType();
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidDataAccessApiUsageException(ex.getMessage(), ex);
+        }
+    }
+
+    private boolean isPathIndexed(MarkLogicPersistentProperty property) {
+        return property.getIndexType() == IndexType.PATH && StringUtils.hasText(property.getPath());
+    }
+
+    /**
+     * Create a named <code>&lt;values&gt;</code> option over a single range index.
+     */
+    String values(String name, Class<?> entityClass, String propertyName, String... valuesOptions) {
+        return format("<values name='%s'>%s%s</values>", name, range(entityClass, propertyName), valuesOptions(valuesOptions));
+    }
+
+    /**
+     * Create a named <code>&lt;tuples&gt;</code> option for the co-occurrences of values in multiple range indexes.
+     */
+    String tuples(String name, Class<?> entityClass, String[] propertyNames, String... valuesOptions) {
+        StringBuilder ranges = new StringBuilder();
+        for (String propertyName : propertyNames) {
+            ranges.append(range(entityClass, propertyName));
+        }
+        return format("<tuples name='%s'>%s%s</tuples>", name, ranges, valuesOptions(valuesOptions));
+    }
+
+    private String valuesOptions(String... valuesOptions) {
+        StringBuilder options = new StringBuilder();
+        for (String option : valuesOptions) {
+            options.append(format("<values-option>%s</values-option>", option));
+        }
+        return options.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+/**
+ * How {@link RawSearchResponse} puts the raw JSON documents of a page of search results together into one response.
+ */
+public enum RawFormat {
+    /**
+     * A JSON array of the documents, which is the default.
+     */
+    JSON_ARRAY("application/json"),
+    /**
+     * Newline delimited JSON, one document per line, so clients can handle each document as soon as its line is
+     * received.
+     */
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    RawFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
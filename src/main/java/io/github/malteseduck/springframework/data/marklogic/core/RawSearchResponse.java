@@ -0,0 +1,107 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.document.DocumentPage;
+import com.marklogic.client.document.DocumentRecord;
+import com.marklogic.client.io.Format;
+import com.marklogic.client.io.InputStreamHandle;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A page of search results that is written to a response as the raw bytes of the documents, without converting them
+ * to entities and back.  The search has already run, so the page information is available for headers before the
+ * body is written.  The {@link #writeTo(OutputStream)} method matches Spring MVC's {@code StreamingResponseBody}, so
+ * a controller can return it directly:
+ *
+ * <pre>
+ * RawSearchResponse results = operations.searchRaw(query, pageable, Person.class, RawFormat.NDJSON);
+ * return ResponseEntity.ok().headers(results.getHeaders()).body((StreamingResponseBody) results::writeTo);
+ * </pre>
+ *
+ * Only JSON documents can be written.  The page is closed once it has been written.
+ */
+public class RawSearchResponse {
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String PAGE_START_HEADER = "X-Page-Start";
+    public static final String PAGE_SIZE_HEADER = "X-Page-Size";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DocumentPage page;
+    private final RawFormat format;
+
+    public RawSearchResponse(DocumentPage page, RawFormat format) {
+        Assert.notNull(page, "A page of documents is required");
+        Assert.notNull(format, "A raw format is required");
+        this.page = page;
+        this.format = format;
+    }
+
+    /**
+     * @return The total number of documents that matched the query.
+     */
+    public long getTotalSize() {
+        return page.getTotalSize();
+    }
+
+    /**
+     * Get the content type of the body and the page information of the results, i.e. "X-Total-Count".  The start of
+     * the page is zero-based.
+     */
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, format.getContentType());
+        headers.set(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalSize()));
+        headers.set(PAGE_START_HEADER, String.valueOf(page.getStart() - 1));
+        headers.set(PAGE_SIZE_HEADER, String.valueOf(page.size()));
+        return headers;
+    }
+
+    /**
+     * Copy the documents of the page to the output, one after another.  The output isn't closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        boolean first = true;
+
+        try {
+            if (format == RawFormat.JSON_ARRAY) out.write('[');
+            for (DocumentRecord record : page) {
+                if (record.getFormat() != null && record.getFormat() != Format.JSON)
+                    throw new InvalidDataAccessApiUsageException(String.format("Cannot write %s as raw JSON, it is stored as %s", record.getUri(), record.getFormat()));
+
+                if (format == RawFormat.JSON_ARRAY && !first) out.write(',');
+                copy(record, out, buffer);
+                if (format == RawFormat.NDJSON) out.write('\n');
+                first = false;
+            }
+            if (format == RawFormat.JSON_ARRAY) out.write(']');
+            out.flush();
+        } finally {
+            page.close();
+        }
+    }
+
+    private void copy(DocumentRecord record, OutputStream out, byte[] buffer) throws IOException {
+        try (InputStreamHandle handle = record.getContent(new InputStreamHandle())) {
+            InputStream in = handle.get();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (format == RawFormat.NDJSON) {
+                    // Line breaks can only be whitespace between tokens in valid JSON, so they can be blanked out without
+                    // parsing the document to keep each document on one line
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] == '\n' || buffer[i] == '\r') buffer[i] = ' ';
+                    }
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Decodes the JSON returned for an Optic plan (with the column types in the header) directly from the response stream,
+ * either binding each row straight to an object or filling column arrays, so no tree is built for the rows.
+ */
+class RowReader {
+
+    private static final Set<String> LONG_TYPES = new HashSet<>(Arrays.asList(
+            "xs:int", "xs:integer", "xs:long", "xs:short", "xs:byte",
+            "xs:unsignedInt", "xs:unsignedShort", "xs:unsignedByte"
+    ));
+    private static final Set<String> DOUBLE_TYPES = new HashSet<>(Arrays.asList("xs:double", "xs:float"));
+    private static final String BOOLEAN_TYPE = "xs:boolean";
+
+    private final ObjectMapper mapper;
+
+    RowReader() {
+        // Registers the Java time and Kotlin modules, when they are available, the same as for entities
+        this(new ObjectMapper()
+                .findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false));
+    }
+
+    RowReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Read the rows of a result that uses the "object" row structure into instances of the specified class.  The
+     * properties of the class are matched to the column names without the schema/view qualifier.
+     */
+    <R> List<R> readRows(InputStream content, Class<R> rowClass) throws IOException {
+        List<R> rows = new ArrayList<>();
+        if (content == null) return rows;
+
+        ObjectReader reader = mapper.readerFor(rowClass);
+        try (JsonParser parser = new ColumnNameParser(mapper.getFactory().createParser(content))) {
+            if (!toRows(parser)) return rows;
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                rows.add(reader.readValue(parser));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Read the rows of a result that uses the "array" row structure into column arrays.
+     */
+    RowColumns readColumns(InputStream content) throws IOException {
+        if (content == null) return new RowColumns(Collections.emptyList(), Collections.emptyList(), new Object[0], new BitSet[0], 0);
+
+        try (JsonParser parser = mapper.getFactory().createParser(content)) {
+            List<String> names = new ArrayList<>();
+            List<String> types = new ArrayList<>();
+            List<Column> columns = new ArrayList<>();
+            int size = 0;
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected an object of rows");
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("columns".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String name = null;
+                        String type = null;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String key = parser.getCurrentName();
+                            parser.nextToken();
+                            if ("name".equals(key)) name = parser.getText();
+                            else if ("type".equals(key)) type = parser.getText();
+                            else parser.skipChildren();
+                        }
+                        names.add(name);
+                        types.add(type);
+                        columns.add(new Column(type));
+                    }
+                } else if ("rows".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        int i = 0;
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            columns.get(i++).add(parser, size);
+                        }
+                        size++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            Object[] values = new Object[columns.size()];
+            BitSet[] nulls = new BitSet[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                values[i] = columns.get(i).trim(size);
+                nulls[i] = columns.get(i).nulls;
+            }
+            return new RowColumns(names, types, values, nulls, size);
+        }
+    }
+
+    /**
+     * Move the parser to the start of the "rows" array, skipping over the column header.
+     */
+    private boolean toRows(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) return false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "rows".equals(field)) return true;
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    static String columnName(String qualified) {
+        return qualified == null ? null : qualified.substring(qualified.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Growable array for the values of one column, primitive when the column type allows it.
+     */
+    private static class Column {
+        private long[] longs;
+        private double[] doubles;
+        private boolean[] booleans;
+        private Object[] objects;
+        private final BitSet nulls = new BitSet();
+
+        Column(String type) {
+            if (LONG_TYPES.contains(type)) longs = new long[16];
+            else if (DOUBLE_TYPES.contains(type)) doubles = new double[16];
+            else if (BOOLEAN_TYPE.equals(type)) booleans = new boolean[16];
+            else objects = new Object[16];
+        }
+
+        void add(JsonParser parser, int row) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NULL) nulls.set(row);
+
+            if (longs != null) {
+                if (row == longs.length) longs = Arrays.copyOf(longs, row * 2);
+                if (token != JsonToken.VALUE_NULL) longs[row] = parser.getValueAsLong();
+            } else if (doubles != null) {
+                if (row == doubles.length) doubles = Arrays.copyOf(doubles, row * 2);
+                if (token != JsonToken.VALUE_NULL) doubles[row] = parser.getValueAsDouble();
+            } else if (booleans != null) {
+                if (row == booleans.length) booleans = Arrays.copyOf(booleans, row * 2);
+                if (token != JsonToken.VALUE_NULL) booleans[row] = parser.getValueAsBoolean();
+            } else {
+                if (row == objects.length) objects = Arrays.copyOf(objects, row * 2);
+                if (token == JsonToken.VALUE_STRING) objects[row] = parser.getText();
+                else if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) objects[row] = parser.getNumberValue();
+                else if (token != JsonToken.VALUE_NULL) objects[row] = parser.readValueAs(Object.class);
+            }
+        }
+
+        Object trim(int size) {
+            if (longs != null) return Arrays.copyOf(longs, size);
+            if (doubles != null) return Arrays.copyOf(doubles, size);
+            if (booleans != null) return Arrays.copyOf(booleans, size);
+            return Arrays.copyOf(objects, size);
+        }
+    }
+
+    /**
+     * Presents the qualified column names ("schema.view.column") as just the column name, so rows bind to the
+     * properties of a class without the qualifier.
+     */
+    private static class ColumnNameParser extends JsonParserDelegate {
+
+        // The result object, then the array of rows, then each row
+        private static final int ROW_DEPTH = 3;
+
+        ColumnNameParser(JsonParser parser) {
+            super(parser);
+        }
+
+        @Override
+        public String getCurrentName() throws IOException {
+            return strip(super.getCurrentName());
+        }
+
+        @Override
+        public String currentName() throws IOException {
+            return strip(super.currentName());
+        }
+
+        @Override
+        public String nextFieldName() throws IOException {
+            return strip(super.nextFieldName());
+        }
+
+        @Override
+        public boolean nextFieldName(SerializableString str) throws IOException {
+            String name = nextFieldName();
+            return name != null && name.equals(str.getValue());
+        }
+
+        @Override
+        public String getText() throws IOException {
+            return strip(super.getText());
+        }
+
+        @Override
+        public String getValueAsString() throws IOException {
+            return strip(super.getValueAsString());
+        }
+
+        private String strip(String value) {
+            // Only the field names of the row objects are column names, values (and any objects in them) are left alone
+            return currentToken() == JsonToken.FIELD_NAME && depth() == ROW_DEPTH
+                    ? columnName(value)
+                    : value;
+        }
+
+        private int depth() {
+            int depth = 0;
+            for (JsonStreamContext context = getParsingContext(); !context.inRoot(); context = context.getParent()) {
+                depth++;
+            }
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.Document;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Installs or updates the TDE templates of entities when the application starts, so the row views stay in sync with the
+ * Java model.  Declare it as a bean to use it, i.e.
+ * <pre>
+ * &#64;Bean
+ * TdeTemplateInstaller templateInstaller(MarkLogicOperations operations) {
+ *     return new TdeTemplateInstaller(operations);
+ * }
+ * </pre>
+ * By default a template is installed for every entity annotated with {@link Document} that is known to the mapping
+ * context once all the beans are created, which includes the entities of all the repositories.  Other entities can be
+ * added with {@link #setEntityClasses(Class[])}.
+ */
+public class TdeTemplateInstaller implements SmartInitializingSingleton {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TdeTemplateInstaller.class);
+
+    private final MarkLogicOperations operations;
+    private Class<?>[] entityClasses = new Class<?>[0];
+
+    public TdeTemplateInstaller(MarkLogicOperations operations) {
+        Assert.notNull(operations, "MarkLogicOperations must not be null!");
+        this.operations = operations;
+    }
+
+    /**
+     * Set additional entity classes to install templates for, whether or not they are annotated with {@link Document}.
+     */
+    public void setEntityClasses(Class<?>... entityClasses) {
+        this.entityClasses = entityClasses;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Set<Class<?>> types = new LinkedHashSet<>(Arrays.asList(entityClasses));
+        for (MarkLogicPersistentEntity<?> entity : operations.getConverter().getMappingContext().getPersistentEntities()) {
+            if (entity.isAnnotationPresent(Document.class)) types.add(entity.getType());
+        }
+
+        int installed = 0;
+        for (Class<?> type : types) {
+            if (operations.installTemplate(type)) installed++;
+        }
+        LOG.info("Checked TDE templates of {} entities, {} installed or updated", types.size(), installed);
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+/**
+ * Determines how {@link MarkLogicTemplate} decides which documents in a batch actually need to be sent to the database.
+ * When skipping unchanged documents a hash of the serialized content and all the metadata written with it (collections,
+ * permissions, quality, properties and metadata values) is stored in the metadata values of each document so later
+ * writes can compare against it.
+ */
+public enum WriteMode {
+    /**
+     * Always write every document, which is the default.
+     */
+    ALWAYS,
+    /**
+     * Read the stored content hashes of the documents in the batch and only write the ones that have changed.  This
+     * costs one metadata read per batch but is always accurate, even if other applications update the documents.
+     */
+    SKIP_UNCHANGED,
+    /**
+     * Same as {@link #SKIP_UNCHANGED} except the hashes of previous writes are remembered locally and only documents not
+     * in the local cache are checked against the database.  Only use this if this application is the only one that
+     * updates these documents, otherwise outside changes could be missed.
+     */
+    SKIP_UNCHANGED_CACHED
+}
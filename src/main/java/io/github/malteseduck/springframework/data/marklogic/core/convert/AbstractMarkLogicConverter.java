@@ -13,27 +13,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.support.DefaultConversionService;
-import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.mapping.context.MappingContext;
 
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static io.github.malteseduck.springframework.data.marklogic.core.mapping.TypePersistenceStrategy.COLLECTION;
 import static io.github.malteseduck.springframework.data.marklogic.core.mapping.TypePersistenceStrategy.URI;
-import static java.util.Arrays.asList;
 import static io.github.malteseduck.springframework.data.marklogic.repository.query.CombinedQueryDefinitionBuilder.combine;
 
 public abstract class AbstractMarkLogicConverter implements MarkLogicConverter {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMarkLogicConverter.class);
 
-    private static final Pattern formats = Pattern.compile("\\.(json|xml)");
     private static final ConversionService converter = new DefaultConversionService();
+    // Just from the ID we don't know the type, or can't infer it, so we need to "try" both
+    private static final UriCodec JSON_URIS = new UriCodec("/", Format.JSON);
+    private static final UriCodec XML_URIS = new UriCodec("/", Format.XML);
+
+    private final Map<Class<?>, UriCodec> codecs = new ConcurrentHashMap<>();
+
+    private boolean streamingWrites;
 
     private MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> mappingContext;
 
@@ -51,27 +54,27 @@ public abstract class AbstractMarkLogicConverter implements MarkLogicConverter {
         return converter;
     }
 
+    /**
+     * Set to serialize entities straight into the body of the write request as the client sends it, instead of into a
+     * byte array for each document first.  This saves holding every document of a large write in memory at once, but
+     * each entity is serialized while the request is sent, so entities must not be changed until the write returns.
+     * Off by default.
+     *
+     * @param streamingWrites True to serialize entities while the request is sent.
+     */
+    public void setStreamingWrites(boolean streamingWrites) {
+        this.streamingWrites = streamingWrites;
+    }
+
+    protected boolean isStreamingWrites() {
+        return streamingWrites;
+    }
+
     @Override
     public void write(Object source, DocumentDescriptor doc) {
         final MarkLogicPersistentEntity<?> entity = getMappingContext().getPersistentEntity(source.getClass());
 
-        if (entity != null && entity.hasIdProperty()) {
-            PersistentProperty idProperty = entity.getPersistentProperty(entity.getIdProperty().getName());
-
-            if (Collection.class.isAssignableFrom(idProperty.getType()) || Map.class.isAssignableFrom(idProperty.getType()))
-                throw new IllegalArgumentException("Collection types not supported as entity id");
-
-            try {
-                // TODO: Better way to do this?
-                // TODO: Support document URI templates if the ID value is null
-                Object id = idProperty.getGetter().invoke(source);
-                doc.setUri(getDocumentUris(asList(id), entity.getType()).get(0));
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Unable to access value of @Id from " + idProperty.getName());
-            }
-        } else {
-            throw new IllegalArgumentException("Your entity of type " + source.getClass().getName() + " does not have a method or field annotated with org.springframework.data.annotation.Id");
-        }
+        doc.setUri(getDocumentUri(source));
 
         if (entity.getTypePersistenceStrategy() == COLLECTION) {
             if (doc.getMetadata() == null) doc.setMetadata(new DocumentMetadataHandle());
@@ -92,19 +95,43 @@ public abstract class AbstractMarkLogicConverter implements MarkLogicConverter {
 
         // We assume that the ID from the database is the correct one, so update the property with the @Id annotation with the "correct" ID
         if (entity != null && entity.hasIdProperty() && mapped != null) {
-            PersistentProperty idProperty = entity.getPersistentProperty(entity.getIdProperty().getName());
-            try {
-                // TODO: Better way to do this?
-                Method setter = idProperty.getSetter();
-                if (setter != null) setter.invoke(mapped, uriToId(doc.getUri(), entity.getDocumentFormat(), entity.getBaseUri(), idProperty.getType()));
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Unable to set value of @Id from " + idProperty.getName());
+            MarkLogicPersistentProperty idProperty = entity.getRequiredIdProperty();
+            if (idProperty.isWritable()) {
+                try {
+                    PersistentPropertyAccessor<R> accessor = entity.getPropertyAccessor(mapped);
+                    accessor.setProperty(idProperty, codec(entity).toId(doc.getUri(), idProperty.getType(), converter));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Unable to set value of @Id from " + idProperty.getName());
+                }
             }
         }
 
         return mapped;
     }
 
+    @Override
+    public String getDocumentUri(Object source) {
+        final MarkLogicPersistentEntity<?> entity = getMappingContext().getPersistentEntity(source.getClass());
+
+        if (entity != null && entity.hasIdProperty()) {
+            MarkLogicPersistentProperty idProperty = entity.getRequiredIdProperty();
+
+            if (Collection.class.isAssignableFrom(idProperty.getType()) || Map.class.isAssignableFrom(idProperty.getType()))
+                throw new IllegalArgumentException("Collection types not supported as entity id");
+
+            try {
+                // TODO: Support document URI templates if the ID value is null
+                // The entity creates (and keeps) a generated accessor class, so this doesn't use reflection for every entity
+                Object id = entity.getIdentifierAccessor(source).getIdentifier();
+                return codec(entity).toUri(id);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Unable to access value of @Id from " + idProperty.getName());
+            }
+        } else {
+            throw new IllegalArgumentException("Your entity of type " + source.getClass().getName() + " does not have a method or field annotated with org.springframework.data.annotation.Id");
+        }
+    }
+
     @Override
     public List<String> getDocumentUris(List<?> ids) {
         return getDocumentUris(ids, null);
@@ -112,35 +139,26 @@ public abstract class AbstractMarkLogicConverter implements MarkLogicConverter {
 
     @Override
     public <T> List<String> getDocumentUris(List<?> ids, Class<T> entityClass) {
-
-        final List<String> uris = ids.stream()
-                .flatMap(id -> {
-                    if (entityClass != null) {
-                        final MarkLogicPersistentEntity<?> entity = getMappingContext().getPersistentEntity(entityClass);
-                        return Stream.of(idToUri(id, entity.getDocumentFormat(), entity.getBaseUri()));
-                    } else {
-                        // Just from the ID we don't know the type, or can't infer it, so we need to "try" both.  The potential downside
-                        // is if they have both JSON/XML for the same id - might get "odd" results?
-                        return Stream.of(
-                                idToUri(id, Format.JSON, "/"),
-                                idToUri(id, Format.XML, "/")
-                        );
-                    }
-                })
-                .collect(Collectors.toList());
-
-        return uris;
-    }
-
-    private Object uriToId(String uri, Format format, String baseUri, Class<?> idType) {
-        String id = formats
-                .matcher(uri.substring(baseUri.length()))
-                .replaceAll("");
-        return converter.convert(id, idType);
+        if (entityClass != null) {
+            final UriCodec codec = codec(getMappingContext().getPersistentEntity(entityClass));
+            List<String> uris = new ArrayList<>(ids.size());
+            for (Object id : ids) {
+                uris.add(codec.toUri(id));
+            }
+            return uris;
+        } else {
+            // The potential downside is if they have both JSON/XML for the same id - might get "odd" results?
+            List<String> uris = new ArrayList<>(ids.size() * 2);
+            for (Object id : ids) {
+                uris.add(JSON_URIS.toUri(id));
+                uris.add(XML_URIS.toUri(id));
+            }
+            return uris;
+        }
     }
 
-    private String idToUri(Object id, Format format, String baseUri) {
-        return baseUri + String.valueOf(id) + "." + format.toString().toLowerCase();
+    private UriCodec codec(MarkLogicPersistentEntity<?> entity) {
+        return codecs.computeIfAbsent(entity.getType(), type -> new UriCodec(entity.getBaseUri(), entity.getDocumentFormat()));
     }
 
     @Override
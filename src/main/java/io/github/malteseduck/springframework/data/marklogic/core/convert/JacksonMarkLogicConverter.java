@@ -2,12 +2,17 @@ package io.github.malteseduck.springframework.data.marklogic.core.convert;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.marklogic.client.MarkLogicIOException;
+import com.marklogic.client.io.BytesHandle;
 import com.marklogic.client.io.Format;
-import com.marklogic.client.io.JacksonDatabindHandle;
+import com.marklogic.client.io.InputStreamHandle;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.DocumentDescriptor;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
@@ -16,9 +21,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.data.mapping.context.MappingContext;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JacksonMarkLogicConverter extends AbstractMarkLogicConverter implements InitializingBean {
 
@@ -28,54 +38,119 @@ public class JacksonMarkLogicConverter extends AbstractMarkLogicConverter implem
     public static SimpleDateFormat simpleDateFormat8601 = new SimpleDateFormat(ISO_8601_FORMAT);
     static { simpleDateFormat8601.setTimeZone(TimeZone.getTimeZone("UTC")); }
 
+    // StAX factories are expensive to look up and thread-safe once configured, so all converters share them
+    private static final XMLInputFactory XML_INPUT = xmlInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT = xmlOutputFactory();
+
     private ObjectMapper objectMapper;
     private ObjectMapper xmlMapper;
 
+    // Readers and writers are immutable and keep the (de)serializers they resolve, so build them once per type
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
     public JacksonMarkLogicConverter(MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> mappingContext) {
         super(mappingContext);
     }
 
     @Override
     public void doWrite(Object source, DocumentDescriptor doc) {
-        final MarkLogicPersistentEntity<?> entity = getMappingContext().getPersistentEntity(source.getClass());
+        ObjectWriter writer = writers.computeIfAbsent(source.getClass(), type -> getMapper(type).writerFor(type));
+        Format format = doc.getFormat() != null ? doc.getFormat() : Format.JSON;
 
-        JacksonDatabindHandle contentHandle = new JacksonDatabindHandle<>(source);
-        if (mapAsXml(entity)) {
-            contentHandle.setMapper(xmlMapper);
-        } else {
-            contentHandle.setMapper(objectMapper);
+        if (isStreamingWrites()) {
+            // The generator writes through Jackson's recycled buffers straight into the request body
+            doc.setContent(new StreamingEntityHandle(out -> writer.writeValue(out, source), format));
+            return;
         }
 
-        doc.setContent(contentHandle);
+        try {
+            doc.setContent(new BytesHandle(writer.writeValueAsBytes(source)).withFormat(format));
+        } catch (JsonProcessingException e) {
+            throw new MarkLogicIOException(e);
+        }
     }
 
     @Override
     public <R> R doRead(Class<R> clazz, DocumentDescriptor doc) {
-        final MarkLogicPersistentEntity<?> entity = getMappingContext().getPersistentEntity(clazz);
+        ObjectReader reader = readers.computeIfAbsent(clazz, type -> getMapper(type).readerFor(type));
 
-        JacksonDatabindHandle<R> handle = new JacksonDatabindHandle<>(clazz);
-        if (mapAsXml(entity)) {
-            handle.setMapper(xmlMapper);
-        } else {
-            handle.setMapper(objectMapper);
+        // Parse straight from the response rather than buffering the document first
+        try (InputStreamHandle handle = doc.getRecord().getContent(new InputStreamHandle())) {
+            return reader.readValue(handle.get());
+        } catch (IOException e) {
+            throw new MarkLogicIOException(e);
         }
+    }
 
-        return doc.getRecord().getContent(handle).get();
+    private ObjectMapper getMapper(Class<?> type) {
+        final MarkLogicPersistentEntity<?> entity = getMappingContext().getPersistentEntity(type);
+        return mapAsXml(entity) ? xmlMapper : objectMapper;
     }
 
     private boolean mapAsXml(MarkLogicPersistentEntity entity) {
         return entity != null && entity.getDocumentFormat() == Format.XML && xmlMapper != null;
     }
 
-    @Override
-    public void afterPropertiesSet() {
-        Module kotlinModule = null;
+    /**
+     * Get the StAX output factory that the converters write XML with, so other writers of XML can share it rather than
+     * looking up their own.
+     */
+    public static XMLOutputFactory getXmlOutputFactory() {
+        return XML_OUTPUT;
+    }
+
+    private static XMLInputFactory xmlInputFactory() {
+        XMLInputFactory factory = optionalStaxFactory("com.ctc.wstx.stax.WstxInputFactory", XMLInputFactory.class);
+        if (factory == null) factory = XMLInputFactory.newFactory();
+
+        // Documents are data, they shouldn't be able to pull in other content
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static XMLOutputFactory xmlOutputFactory() {
+        XMLOutputFactory factory = optionalStaxFactory("com.ctc.wstx.stax.WstxOutputFactory", XMLOutputFactory.class);
+        return factory != null ? factory : XMLOutputFactory.newFactory();
+    }
+
+    /**
+     * Create an instance of a specific StAX implementation if it is on the classpath, rather than whichever one the
+     * service lookup happens to find first.
+     *
+     * @return The factory, or null if it isn't available.
+     */
+    private static <T> T optionalStaxFactory(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className, false, JacksonMarkLogicConverter.class.getClassLoader()).getConstructor().newInstance());
+        } catch (Exception | LinkageError e) {
+            LOG.debug("{} not used for XML conversion because it was not detected on the classpath", className);
+            return null;
+        }
+    }
+
+    /**
+     * Create an instance of a Jackson module if it is on the classpath.
+     *
+     * @return The module, or null if it isn't available.
+     */
+    private Module optionalModule(String className) {
         try {
-            kotlinModule = (Module) Class.forName("com.fasterxml.jackson.module.kotlin.KotlinModule", false, getClass().getClassLoader())
-                    .getConstructor().newInstance();
-        } catch (Exception e) {
-            LOG.debug("KotlinModule not included in mappers because it was not detected on the classpath or there was an issue instantiating an instance");
+            return (Module) Class.forName(className, false, getClass().getClassLoader()).getConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            LOG.debug("{} not included in mappers because it was not detected on the classpath or there was an issue instantiating an instance", className);
+            return null;
         }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Module kotlinModule = optionalModule("com.fasterxml.jackson.module.kotlin.KotlinModule");
+
+        // Bytecode generated property access is faster than reflection, so use it if either module is included
+        Module accessModule = optionalModule("com.fasterxml.jackson.module.blackbird.BlackbirdModule");
+        if (accessModule == null) accessModule = optionalModule("com.fasterxml.jackson.module.afterburner.AfterburnerModule");
 
         objectMapper = new ObjectMapper()
                 .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
@@ -87,11 +162,17 @@ public class JacksonMarkLogicConverter extends AbstractMarkLogicConverter implem
                 .deactivateDefaultTyping();
 
         if (kotlinModule != null) objectMapper = objectMapper.registerModule(kotlinModule);
+        if (accessModule != null) objectMapper = objectMapper.registerModule(accessModule);
 
         try {
             // TODO: Is it just easier/better to include the dumb library?  It will cause the default behavior to change for Spring Web stuff
-            Class<?> mapperClass = Class.forName("com.fasterxml.jackson.dataformat.xml.XmlMapper", false, this.getClass().getClassLoader());
-            xmlMapper = ((ObjectMapper) mapperClass.getConstructor().newInstance())
+            ClassLoader loader = this.getClass().getClassLoader();
+            Class<?> factoryClass = Class.forName("com.fasterxml.jackson.dataformat.xml.XmlFactory", false, loader);
+            Class<?> mapperClass = Class.forName("com.fasterxml.jackson.dataformat.xml.XmlMapper", false, loader);
+            // Build the mapper over the shared StAX factories so every converter streams through the same (Woodstox) parser
+            Object xmlFactory = factoryClass.getConstructor(XMLInputFactory.class, XMLOutputFactory.class)
+                    .newInstance(XML_INPUT, XML_OUTPUT);
+            xmlMapper = ((ObjectMapper) mapperClass.getConstructor(factoryClass).newInstance(xmlFactory))
                     .configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false)
                     .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
                     .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false)
@@ -101,6 +182,7 @@ public class JacksonMarkLogicConverter extends AbstractMarkLogicConverter implem
                     .deactivateDefaultTyping();
 
             if (kotlinModule != null) xmlMapper = xmlMapper.registerModule(kotlinModule);
+            if (accessModule != null) xmlMapper = xmlMapper.registerModule(accessModule);
         } catch (ClassNotFoundException e) {
             LOG.info("com.fasterxml.jackson.dataformat:jackson-dataformat-xml needs to be included in order to use Java->XML conversion");
         } catch (IllegalAccessException | NoSuchMethodException | InstantiationException e) {
@@ -108,5 +190,8 @@ public class JacksonMarkLogicConverter extends AbstractMarkLogicConverter implem
         }   catch (InvocationTargetException e) {
             e.printStackTrace();
         }
+
+        readers.clear();
+        writers.clear();
     }
 }
@@ -15,6 +15,11 @@ public interface MarkLogicConverter extends
         EntityConverter<MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty, Object, DocumentDescriptor>, EntityWriter<Object, DocumentDescriptor>,
         EntityReader<Object, DocumentDescriptor> {
 
+    /**
+     * Get the URI of the document for an entity from its id, without serializing the entity.
+     */
+    String getDocumentUri(Object entity);
+
     List<String> getDocumentUris(List<?> ids);
 
     <T> List<String> getDocumentUris(List<?> ids, Class<T> entityClass);
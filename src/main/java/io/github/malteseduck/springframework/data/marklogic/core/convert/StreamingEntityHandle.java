@@ -0,0 +1,20 @@
+package io.github.malteseduck.springframework.data.marklogic.core.convert;
+
+import com.marklogic.client.io.Format;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.OutputStreamSender;
+import com.marklogic.client.io.marker.ContentHandle;
+
+/**
+ * The content of an entity that is serialized straight into the body of the request when the client sends it, rather
+ * than into a buffer first.  The entity can be serialized again, so the content can be resent when the client retries
+ * a request, or written to a buffer by things that need the bytes up front, i.e. computing content hashes.
+ */
+class StreamingEntityHandle extends OutputStreamHandle implements ContentHandle<OutputStreamSender> {
+
+    StreamingEntityHandle(OutputStreamSender sender, Format format) {
+        super(sender);
+        setFormat(format);
+        setResendable(true);
+    }
+}
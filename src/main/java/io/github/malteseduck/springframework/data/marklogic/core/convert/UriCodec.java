@@ -0,0 +1,49 @@
+package io.github.malteseduck.springframework.data.marklogic.core.convert;
+
+import com.marklogic.client.io.Format;
+import org.springframework.core.convert.ConversionService;
+
+/**
+ * Converts between the ids of an entity and the URIs of its documents, which are the base URI of the entity followed
+ * by the id and the extension of the document format, i.e. "/Person/1234.json".  One is created for each entity so the
+ * base URI and extension are only worked out once.
+ */
+final class UriCodec {
+
+    private final String baseUri;
+    private final String extension;
+
+    UriCodec(String baseUri, Format format) {
+        this.baseUri = baseUri;
+        this.extension = "." + format.toString().toLowerCase();
+    }
+
+    String toUri(Object id) {
+        return baseUri + id + extension;
+    }
+
+    /**
+     * Get the id of the document with the URI.  Numeric and string ids are parsed directly, other types of ids are
+     * converted with the conversion service.
+     */
+    Object toId(String uri, Class<?> idType, ConversionService conversions) {
+        String id = idPart(uri);
+
+        if (idType == String.class || idType == Object.class) return id;
+        if (idType == Long.class || idType == long.class) return Long.parseLong(id);
+        if (idType == Integer.class || idType == int.class) return Integer.parseInt(id);
+        return conversions.convert(id, idType);
+    }
+
+    private String idPart(String uri) {
+        int start = uri.startsWith(baseUri) ? baseUri.length() : 0;
+        int end = uri.endsWith(extension) ? uri.length() - extension.length() : uri.length();
+
+        // Documents written outside of the entity's format still have an extension to remove
+        if (end == uri.length()) {
+            int dot = uri.lastIndexOf('.');
+            if (dot > start && (uri.endsWith(".json") || uri.endsWith(".xml"))) end = dot;
+        }
+        return uri.substring(start, end);
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A snapshot of the indexes that are configured on a database, read from the database properties of the management
+ * API.
+ */
+public class IndexCatalog {
+
+    private final Set<RangeIndex> rangeIndexes;
+    private final boolean threeCharacterSearches;
+    private final boolean trailingWildcardSearches;
+    private final boolean wordLexicon;
+
+    public IndexCatalog(Set<RangeIndex> rangeIndexes) {
+        this(rangeIndexes, false, false, false);
+    }
+
+    /**
+     * @param rangeIndexes             The configured range indexes.
+     * @param threeCharacterSearches   Whether the "three character searches" index is enabled.
+     * @param trailingWildcardSearches Whether the "trailing wildcard searches" index is enabled.
+     * @param wordLexicon              Whether there is a database word lexicon, which wildcards can be expanded with.
+     */
+    public IndexCatalog(Set<RangeIndex> rangeIndexes, boolean threeCharacterSearches, boolean trailingWildcardSearches, boolean wordLexicon) {
+        this.rangeIndexes = Collections.unmodifiableSet(new LinkedHashSet<>(rangeIndexes));
+        this.threeCharacterSearches = threeCharacterSearches;
+        this.trailingWildcardSearches = trailingWildcardSearches;
+        this.wordLexicon = wordLexicon;
+    }
+
+    /**
+     * Create a catalog from the JSON database properties, as returned by
+     * http://docs.marklogic.com/REST/GET/manage/v2/databases/[id-or-name]/properties.
+     */
+    public static IndexCatalog fromProperties(JsonNode properties) {
+        Set<RangeIndex> indexes = new LinkedHashSet<>();
+
+        for (JsonNode index : properties.path("range-path-index")) {
+            indexes.add(RangeIndex.path(
+                    index.path("scalar-type").asText(),
+                    index.path("path-expression").asText(),
+                    index.path("collation").asText(null)
+            ));
+        }
+
+        for (JsonNode index : properties.path("range-element-index")) {
+            // One element index configuration can cover multiple space-separated local names
+            for (String localname : index.path("localname").asText().trim().split("\\s+")) {
+                indexes.add(RangeIndex.element(
+                        index.path("scalar-type").asText(),
+                        index.path("namespace-uri").asText(null),
+                        localname,
+                        index.path("collation").asText(null)
+                ));
+            }
+        }
+
+        return new IndexCatalog(indexes,
+                properties.path("three-character-searches").asBoolean(false),
+                properties.path("trailing-wildcard-searches").asBoolean(false),
+                properties.path("word-lexicon").size() > 0);
+    }
+
+    /**
+     * Create a catalog from a saved copy of the JSON database properties, i.e. so the indexes can be checked without
+     * access to the management API.
+     */
+    public static IndexCatalog fromResource(Resource properties) throws IOException {
+        try (InputStream in = properties.getInputStream()) {
+            return fromProperties(new ObjectMapper().readTree(in));
+        }
+    }
+
+    public Set<RangeIndex> getRangeIndexes() {
+        return rangeIndexes;
+    }
+
+    public boolean contains(RangeIndex index) {
+        return rangeIndexes.contains(index);
+    }
+
+    /**
+     * Check if there is an index that can resolve range queries of the index's type, regardless of the collation.  A
+     * query that doesn't specify a collation uses the default collation of the app server, so the collation of the
+     * configured index isn't known to be wrong.
+     */
+    public boolean covers(RangeIndex index) {
+        return rangeIndexes.stream().anyMatch(existing ->
+                existing.getType() == index.getType() &&
+                        existing.getScalarType().equals(index.getScalarType()) &&
+                        existing.getNamespace().equals(index.getNamespace()) &&
+                        existing.getReference().equals(index.getReference()));
+    }
+
+    /**
+     * Check if the word query for a term can be resolved from the indexes, without filtering.  Terms without wildcards
+     * always can.  A term with only a trailing wildcard needs the trailing wildcard index, and other wildcards need the
+     * three character index (and at least three characters that aren't wildcards), unless there is a word lexicon to
+     * expand the wildcards with.
+     */
+    public boolean canResolveWildcard(String term) {
+        if (term.indexOf('*') < 0 && term.indexOf('?') < 0) return true;
+        if (wordLexicon) return true;
+        if (threeCharacterSearches && term.replaceAll("[*?]", "").length() >= 3) return true;
+
+        boolean trailingOnly = term.indexOf('?') < 0 && term.indexOf('*') == term.length() - 1;
+        return trailingOnly && trailingWildcardSearches;
+    }
+
+    public boolean isThreeCharacterSearches() {
+        return threeCharacterSearches;
+    }
+
+    public boolean isTrailingWildcardSearches() {
+        return trailingWildcardSearches;
+    }
+
+    public boolean hasWordLexicon() {
+        return wordLexicon;
+    }
+
+    /**
+     * Check if there is an index of any scalar type on the path or element, which is what sorting on it requires.
+     *
+     * @param type      The type of index.
+     * @param reference The path expression of a path index, or the local name of an element index.
+     */
+    public boolean hasRangeIndex(IndexType type, String reference) {
+        return rangeIndexes.stream().anyMatch(existing ->
+                existing.getType() == type && existing.getReference().equals(reference));
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.Document;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.Indexed;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mapping.SimplePropertyHandler;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.util.Assert;
+
+import java.util.*;
+
+/**
+ * Makes sure the range indexes described by {@link Indexed} annotations on the mapped entities exist in the database.
+ * The required indexes are compared with the ones that are configured and only the missing ones are added, or in
+ * "dry run" mode they are just reported.  Declare it as a bean to check the indexes when the application starts, i.e.
+ * <pre>
+ * &#64;Bean
+ * IndexProvisioner indexProvisioner(MarkLogicOperations operations) {
+ *     IndexProvisioner provisioner = new IndexProvisioner(operations);
+ *     provisioner.setDryRun(true);
+ *     return provisioner;
+ * }
+ * </pre>
+ * The entities that are checked are the ones known to the mapping context once all the beans are created, which
+ * includes the entities of all the repositories.  Adding indexes requires that the client was created with a user that
+ * has "admin" privileges.
+ */
+public class IndexProvisioner implements SmartInitializingSingleton {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexProvisioner.class);
+
+    private final MarkLogicOperations operations;
+    private boolean dryRun;
+
+    public IndexProvisioner(MarkLogicOperations operations) {
+        Assert.notNull(operations, "MarkLogicOperations must not be null!");
+        this.operations = operations;
+    }
+
+    /**
+     * Set to only report the missing indexes instead of adding them.
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Determine the range indexes the mapped entities need.  Only the entities that are stored as documents are checked,
+     * the properties of the objects nested in them are indexed under the path of the property that holds them.
+     *
+     * @return The indexes mapped to the entity properties that need them, i.e. "Person.name" or "Person.pets.name".
+     */
+    public Map<RangeIndex, Set<String>> getRequiredIndexes() {
+        MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> context = operations.getConverter().getMappingContext();
+        Map<RangeIndex, Set<String>> required = new LinkedHashMap<>();
+        for (MarkLogicPersistentEntity<?> entity : rootEntities(context)) {
+            addRequiredIndexes(entity, "", entity.getType().getSimpleName(), context, required, new HashSet<>());
+        }
+        return required;
+    }
+
+    /**
+     * Entities annotated with {@link Document}, and the ones that aren't nested in another entity.  Value objects
+     * (i.e. the pets of a person) are in the mapping context too, but are never stored on their own.
+     */
+    private static List<MarkLogicPersistentEntity<?>> rootEntities(MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> context) {
+        Set<Class<?>> nested = new HashSet<>();
+        for (MarkLogicPersistentEntity<?> entity : context.getPersistentEntities()) {
+            entity.doWithProperties((SimplePropertyHandler) p -> {
+                if (p.isEntity() && p.getActualType() != entity.getType()) nested.add(p.getActualType());
+            });
+        }
+
+        List<MarkLogicPersistentEntity<?>> roots = new ArrayList<>();
+        for (MarkLogicPersistentEntity<?> entity : context.getPersistentEntities()) {
+            if (entity.isAnnotationPresent(Document.class) || !nested.contains(entity.getType())) roots.add(entity);
+        }
+        return roots;
+    }
+
+    private void addRequiredIndexes(MarkLogicPersistentEntity<?> entity, String path, String name,
+                                    MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> context,
+                                    Map<RangeIndex, Set<String>> required, Set<Class<?>> visiting) {
+        // Types that contain themselves would otherwise be walked forever
+        if (!visiting.add(entity.getType())) return;
+
+        entity.doWithProperties((SimplePropertyHandler) p -> {
+            MarkLogicPersistentProperty property = (MarkLogicPersistentProperty) p;
+            String propertyName = name + "." + property.getName();
+
+            if (property.isAnnotationPresent(Indexed.class)) {
+                RangeIndex index = RangeIndex.forProperty(property, path);
+                if (index != null) {
+                    required.computeIfAbsent(index, key -> new TreeSet<>()).add(propertyName);
+                } else {
+                    LOG.warn("{} is annotated with @Indexed but its type can't be range indexed", propertyName);
+                }
+            }
+
+            if (property.isEntity()) {
+                MarkLogicPersistentEntity<?> nested = context.getPersistentEntity(property.getActualType());
+                if (nested != null) {
+                    addRequiredIndexes(nested, path + "/" + property.getFieldName(), propertyName, context, required, visiting);
+                }
+            }
+        });
+
+        visiting.remove(entity.getType());
+    }
+
+    /**
+     * Compare the required indexes with the ones configured on the database and add the missing ones.
+     *
+     * @param dryRun Set to only report the missing indexes without adding them.
+     *
+     * @return The comparison of the required and configured indexes.
+     */
+    public IndexReport provision(boolean dryRun) {
+        IndexCatalog catalog = operations.getIndexCatalog();
+
+        Map<RangeIndex, Set<String>> missing = new LinkedHashMap<>();
+        Set<RangeIndex> existing = new LinkedHashSet<>();
+        getRequiredIndexes().forEach((index, properties) -> {
+            if (catalog.contains(index)) existing.add(index);
+            else missing.put(index, properties);
+        });
+
+        boolean apply = !dryRun && !missing.isEmpty();
+        if (apply) {
+            operations.addRangeIndexes(missing.keySet());
+        }
+        return new IndexReport(missing, existing, apply);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        IndexReport report = provision(dryRun);
+        if (report.isComplete()) {
+            LOG.info("Range indexes: {}", report);
+        } else {
+            LOG.warn("Range indexes: {}", report);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of comparing the range indexes that the mapped entities need with the ones configured on the database.
+ */
+public class IndexReport {
+
+    private final Map<RangeIndex, Set<String>> missing;
+    private final Set<RangeIndex> existing;
+    private final boolean applied;
+
+    /**
+     * @param missing  The indexes that are not configured, with the entity properties that need each of them.
+     * @param existing The needed indexes that are already configured.
+     * @param applied  Whether or not the missing indexes were added to the database.
+     */
+    public IndexReport(Map<RangeIndex, Set<String>> missing, Set<RangeIndex> existing, boolean applied) {
+        this.missing = Collections.unmodifiableMap(new LinkedHashMap<>(missing));
+        this.existing = Collections.unmodifiableSet(existing);
+        this.applied = applied;
+    }
+
+    /**
+     * The indexes that were not configured, mapped to the entity properties that need them, i.e. "Person.name".
+     */
+    public Map<RangeIndex, Set<String>> getMissing() {
+        return missing;
+    }
+
+    public Set<RangeIndex> getExisting() {
+        return existing;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public boolean isComplete() {
+        return missing.isEmpty() || applied;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append(existing.size()).append(" range indexes already configured, ")
+                .append(missing.size()).append(applied ? " added" : " missing");
+        missing.forEach((index, properties) ->
+                report.append("\n  ").append(index).append(" for ").append(String.join(", ", properties)));
+        return report.toString();
+    }
+}
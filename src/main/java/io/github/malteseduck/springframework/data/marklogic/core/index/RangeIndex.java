@@ -0,0 +1,169 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.QueryType;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.PropertyIndex;
+import org.springframework.util.StringUtils;
+
+import java.util.Objects;
+
+/**
+ * A path or element range index, as it is configured on a database.  Two indexes are equal if they index the same
+ * path/element with the same scalar type (and collation, for strings), which is what it takes for one to be usable in
+ * place of the other.
+ */
+public final class RangeIndex {
+
+    /**
+     * The root collation, which orders strings by the Unicode Collation Algorithm.  It is the default collation of app
+     * servers, so it is what the range queries and sorts of this library use for strings when they don't specify one.
+     */
+    public static final String ROOT_COLLATION = "http://marklogic.com/collation/";
+
+    /**
+     * The codepoint collation, which orders strings by the Unicode codepoints of their characters.
+     */
+    public static final String CODEPOINT_COLLATION = "http://marklogic.com/collation/codepoint";
+
+    private final IndexType type;
+    private final String scalarType;
+    private final String namespace;
+    private final String reference;
+    private final String collation;
+
+    private RangeIndex(IndexType type, String scalarType, String namespace, String reference, String collation) {
+        this.type = type;
+        this.scalarType = scalarType;
+        this.namespace = namespace == null ? "" : namespace;
+        this.reference = reference;
+        // Only strings have a collation, even though the configuration sometimes has one for other types
+        this.collation = "string".equals(scalarType) ? (StringUtils.hasText(collation) ? collation : ROOT_COLLATION) : null;
+    }
+
+    public static RangeIndex path(String scalarType, String pathExpression) {
+        return new RangeIndex(IndexType.PATH, scalarType, null, pathExpression, ROOT_COLLATION);
+    }
+
+    public static RangeIndex path(String scalarType, String pathExpression, String collation) {
+        return new RangeIndex(IndexType.PATH, scalarType, null, pathExpression, collation);
+    }
+
+    public static RangeIndex element(String scalarType, String namespace, String localname) {
+        return new RangeIndex(IndexType.ELEMENT, scalarType, namespace, localname, ROOT_COLLATION);
+    }
+
+    public static RangeIndex element(String scalarType, String namespace, String localname, String collation) {
+        return new RangeIndex(IndexType.ELEMENT, scalarType, namespace, localname, collation);
+    }
+
+    /**
+     * Determine the range index a property needs, based on its {@link io.github.malteseduck.springframework.data.marklogic.core.mapping.Indexed}
+     * configuration, using the same scalar type that range queries against the property use.
+     *
+     * @return The index, or null if the type of the property can't be range indexed.
+     */
+    public static RangeIndex forProperty(MarkLogicPersistentProperty property) {
+        return forProperty(property, "");
+    }
+
+    /**
+     * Determine the range index a property of a nested object needs.  Path indexes that don't have a path set on the
+     * annotation are under the path of the object, i.e. "/pets/name" for the name of the objects in "pets".
+     *
+     * @param ownerPath The path of the object that has the property, i.e. "/pets".
+     *
+     * @return The index, or null if the type of the property can't be range indexed.
+     */
+    public static RangeIndex forProperty(MarkLogicPersistentProperty property, String ownerPath) {
+        String scalarType;
+        try {
+            // i.e. "xs:int" becomes "int"
+            scalarType = new PropertyIndex(null, QueryType.RANGE).withProperty(property).getRangeIndexType().substring(3);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        if (property.getIndexType() == IndexType.PATH && StringUtils.hasText(property.getPath())) {
+            String path = property.getPath();
+            boolean derived = path.equals("/" + property.getFieldName());
+            return path(scalarType, derived && ownerPath != null ? ownerPath + path : path);
+        } else {
+            return element(scalarType, null, property.getFieldName());
+        }
+    }
+
+    /**
+     * Get the same index with a different collation, i.e. to check if there is a codepoint collation index on a property.
+     */
+    public RangeIndex withCollation(String collation) {
+        return new RangeIndex(type, scalarType, namespace, reference, collation);
+    }
+
+    public IndexType getType() {
+        return type;
+    }
+
+    public String getScalarType() {
+        return scalarType;
+    }
+
+    /**
+     * The path expression of a path index, or the local name of an element index.
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getCollation() {
+        return collation;
+    }
+
+    /**
+     * Create the JSON that configures this index through the management API.
+     */
+    public ObjectNode toJson() {
+        ObjectNode json = JsonNodeFactory.instance.objectNode()
+                .put("scalar-type", scalarType);
+        if (type == IndexType.PATH) {
+            json.put("path-expression", reference);
+        } else {
+            json.put("namespace-uri", namespace).put("localname", reference);
+        }
+        return json
+                .put("collation", collation == null ? "" : collation)
+                .put("range-value-positions", false)
+                .put("invalid-values", "reject");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RangeIndex that = (RangeIndex) o;
+        return type == that.type &&
+                Objects.equals(scalarType, that.scalarType) &&
+                Objects.equals(namespace, that.namespace) &&
+                Objects.equals(reference, that.reference) &&
+                Objects.equals(collation, that.collation);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, scalarType, namespace, reference, collation);
+    }
+
+    @Override
+    public String toString() {
+        String name = type == IndexType.PATH
+                ? "path " + reference
+                : "element " + (namespace.isEmpty() ? "" : "{" + namespace + "}") + reference;
+        return name + " (" + scalarType + (collation != null ? ", " + collation : "") + ")";
+    }
+}
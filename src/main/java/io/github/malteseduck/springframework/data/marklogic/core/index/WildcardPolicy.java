@@ -0,0 +1,49 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What to do with a wildcarded search term that the wildcard indexes of the database can't resolve (see
+ * {@link IndexCatalog#canResolveWildcard(String)}).  Such a term is either matched by a filtered scan of the candidate
+ * documents, which is slow, or matches more documents than it should in an unfiltered search.
+ */
+public enum WildcardPolicy {
+
+    /**
+     * Run the query as it is.
+     */
+    ALLOW,
+
+    /**
+     * Run the query as it is, but log a warning the first time each term is used on each property.
+     */
+    WARN,
+
+    /**
+     * Fail the query with an {@link InvalidDataAccessApiUsageException}.
+     */
+    REJECT;
+
+    private static final Logger LOG = LoggerFactory.getLogger(WildcardPolicy.class);
+    private static final Set<String> WARNED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Apply the policy to a term the indexes can't resolve.
+     *
+     * @param term     The wildcarded term.
+     * @param property The name of the property the term is searched in.
+     */
+    public void unresolvable(String term, String property) {
+        String message = String.format("Wildcard term '%s' on %s can't be resolved by the wildcard indexes of the database", term, property);
+        if (this == REJECT) {
+            throw new InvalidDataAccessApiUsageException(message);
+        } else if (this == WARN && WARNED.add(property + ":" + term)) {
+            LOG.warn(message);
+        }
+    }
+}
@@ -19,6 +19,10 @@ public class BasicMarkLogicPersistentEntity<T> extends BasicPersistentEntity<T,
     private String baseUri;
     private String typeName;
     private Class<? extends ServerTransformer> transformer;
+    private String schemaName;
+    private String[] searchOptions;
+
+    public static final String DEFAULT_SCHEMA_NAME = "entities";
 
     public BasicMarkLogicPersistentEntity(TypeInformation<T> information) {
         this(information, null);
@@ -42,12 +46,16 @@ public class BasicMarkLogicPersistentEntity<T> extends BasicPersistentEntity<T,
             // TODO: if configuration says use full name instead of simple name, let that be the default
             this.typeName = Util.coalesce(document.type(), defaultTypeName);
             this.transformer = document.transformer();
+            this.schemaName = Util.coalesce(document.schema(), DEFAULT_SCHEMA_NAME);
+            this.searchOptions = document.searchOptions();
         } else {
             this.baseUri = defaultUri;
             this.typePersistenceStrategy = defaultTypeStrategy;
             this.documentFormat = defaultFormat;
             this.typeName = defaultTypeName;
             this.transformer = defaultTransformer;
+            this.schemaName = DEFAULT_SCHEMA_NAME;
+            this.searchOptions = new String[0];
         }
     }
 
@@ -85,6 +93,16 @@ public class BasicMarkLogicPersistentEntity<T> extends BasicPersistentEntity<T,
         return transformer;
     }
 
+    @Override
+    public String getSchemaName() {
+        return schemaName;
+    }
+
+    @Override
+    public String[] getSearchOptions() {
+        return searchOptions;
+    }
+
     private String normalize(String uri) {
         String result = uri;
         if (!result.startsWith("/")) {
@@ -13,6 +13,7 @@ import org.springframework.util.StringUtils;
 public class BasicMarkLogicPersistentProperty extends AnnotationBasedPersistentProperty<MarkLogicPersistentProperty> implements MarkLogicPersistentProperty {
 
     private static final Logger LOG = LoggerFactory.getLogger(BasicMarkLogicPersistentProperty.class);
+    private final String fieldName;
     private final String path;
     private final IndexType indexType;
 
@@ -28,6 +29,8 @@ public class BasicMarkLogicPersistentProperty extends AnnotationBasedPersistentP
             name = jsonProperty.value();
         }
 
+        fieldName = name;
+
         if (indexed != null) {
             indexType = indexed.type();
             if (StringUtils.hasText(indexed.path())) {
@@ -50,7 +53,7 @@ public class BasicMarkLogicPersistentProperty extends AnnotationBasedPersistentP
 
     @Override
     public String getFieldName() {
-        return null;
+        return fieldName;
     }
 
     @Override
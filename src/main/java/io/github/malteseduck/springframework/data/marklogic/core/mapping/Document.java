@@ -47,4 +47,17 @@ public @interface Document
 	 * ServerTransform interface.
 	 */
 	Class<? extends ServerTransformer> transformer() default ServerTransformer.class;
+
+	/**
+	 * The schema name of the view in the TDE template that is generated for the annotated type.  The view itself is
+	 * named after the type.  Defaults to "entities".
+	 */
+	String schema() default "";
+
+	/**
+	 * Search options used by default for queries on the annotated type, i.e. "unfiltered" and "score-zero" when all the
+	 * queries on the type can be resolved from the indexes and relevance doesn't matter.  Options set on a repository
+	 * method with {@code @Query(searchOptions = ...)} take precedence.
+	 */
+	String[] searchOptions() default {};
 }
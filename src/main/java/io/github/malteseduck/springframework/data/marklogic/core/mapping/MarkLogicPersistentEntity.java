@@ -35,4 +35,14 @@ public interface MarkLogicPersistentEntity<T> extends PersistentEntity<T, MarkLo
      * Gets the configured server transformer class
      */
     Class<? extends ServerTransformer> getTransformer();
+
+    /**
+     * Gets the schema name to use for the row view of the entity
+     */
+    String getSchemaName();
+
+    /**
+     * Gets the search options to use by default for queries on the entity
+     */
+    String[] getSearchOptions();
 }
@@ -0,0 +1,93 @@
+package io.github.malteseduck.springframework.data.marklogic.core.mapping;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.client.io.Format;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.QueryType;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.PropertyIndex;
+import org.springframework.data.mapping.SimplePropertyHandler;
+import org.springframework.util.StringUtils;
+
+/**
+ * Generates a Template Driven Extraction (TDE) template for an entity so its documents can be queried as rows, either
+ * through Optic or SQL.  The template has a single view, named after the entity type in the schema of the entity, with
+ * a column for each top-level property that has a type that can be indexed (strings, numbers and dates).  Column types
+ * are determined the same way as for range indexes, and a property with an explicit path in its
+ * {@link Indexed} annotation uses that path for the column value.  Collections, maps and nested objects don't fit in a
+ * single row so are left out.
+ */
+public class TdeTemplateGenerator {
+
+    private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+
+    /**
+     * The URI that the template of an entity is stored under in the schemas database.
+     */
+    public String getUri(MarkLogicPersistentEntity<?> entity) {
+        return String.format("/tde/%s/%s.json", entity.getSchemaName(), entity.getTypeName());
+    }
+
+    /**
+     * Generate the TDE template for an entity.
+     *
+     * @return The template as JSON.
+     */
+    public ObjectNode generate(MarkLogicPersistentEntity<?> entity) {
+        ArrayNode columns = factory.arrayNode();
+        entity.doWithProperties((SimplePropertyHandler) p -> {
+            MarkLogicPersistentProperty property = (MarkLogicPersistentProperty) p;
+            if (property.isCollectionLike() || property.isMap()) return;
+
+            String type = scalarType(property);
+            if (type == null) return;
+
+            columns.add(factory.objectNode()
+                    .put("name", property.getFieldName())
+                    .put("scalarType", type)
+                    .put("val", value(property))
+                    .put("nullable", true)
+                    .put("invalidValues", "ignore"));
+        });
+
+        ObjectNode view = factory.objectNode()
+                .put("schemaName", entity.getSchemaName())
+                .put("viewName", entity.getTypeName());
+        view.set("columns", columns);
+
+        ObjectNode template = factory.objectNode();
+        // XML documents have a root element, which is the context, JSON documents don't have a name for the root
+        template.put("context", Format.XML.equals(entity.getDocumentFormat()) ? "/*" : "/");
+        if (entity.getTypePersistenceStrategy() == TypePersistenceStrategy.COLLECTION) {
+            template.set("collections", factory.arrayNode().add(entity.getTypeName()));
+        } else if (entity.getTypePersistenceStrategy() == TypePersistenceStrategy.URI) {
+            template.set("directories", factory.arrayNode().add(entity.getBaseUri()));
+        }
+        template.set("rows", factory.arrayNode().add(view));
+
+        ObjectNode root = factory.objectNode();
+        root.set("template", template);
+        return root;
+    }
+
+    private String scalarType(MarkLogicPersistentProperty property) {
+        try {
+            // i.e. "xs:int" becomes "int"
+            return new PropertyIndex(null, QueryType.RANGE)
+                    .withProperty(property)
+                    .getRangeIndexType()
+                    .substring(3);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private String value(MarkLogicPersistentProperty property) {
+        String path = property.getPath();
+        // The default path is just the property at the root, so only a path set through @Indexed is different
+        if (property.getIndexType() == IndexType.PATH && StringUtils.hasText(path) && !path.equals("/" + property.getFieldName())) {
+            return path.startsWith("/") ? path.substring(1) : path;
+        }
+        return property.getFieldName();
+    }
+}
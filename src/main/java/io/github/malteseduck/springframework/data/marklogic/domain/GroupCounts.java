@@ -0,0 +1,168 @@
+package io.github.malteseduck.springframework.data.marklogic.domain;
+
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Read-only map of group values to the number of documents in each group, in the order they were returned from the
+ * database (most frequent first).  The counts are held in a primitive array, so use {@link #getCount(Object)} or
+ * {@link #forEach(ObjLongConsumer)} to read them without boxing; the {@link Map} methods box on demand.
+ * <p>
+ * When grouping by a single property the keys are the values of that property, when grouping by more than one
+ * property the keys are lists of the values in the order the properties were specified.
+ *
+ * @param <K> The type of the group values.
+ */
+public class GroupCounts<K> extends AbstractMap<K, Long> {
+
+    private final List<K> keys;
+    private long[] counts;
+    private Map<Object, Integer> index;
+
+    private GroupCounts(int initialCapacity) {
+        this.keys = new ArrayList<>(initialCapacity);
+        this.counts = new long[Math.max(initialCapacity, 1)];
+    }
+
+    public static <K> Builder<K> builder() {
+        return new Builder<>(16);
+    }
+
+    public static <K> Builder<K> builder(int initialCapacity) {
+        return new Builder<>(initialCapacity);
+    }
+
+    private void add(K key, long count) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            counts[i] += count;
+            return;
+        }
+
+        if (keys.size() == counts.length) {
+            counts = Arrays.copyOf(counts, counts.length * 2);
+        }
+        counts[keys.size()] = count;
+        if (index != null) index.put(key, keys.size());
+        keys.add(key);
+    }
+
+    /**
+     * Get the count for a group without boxing it.
+     *
+     * @return The count, or zero if there is no such group.
+     */
+    public long getCount(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? counts[i] : 0;
+    }
+
+    /**
+     * The sum of the counts of all the groups.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    public void forEach(ObjLongConsumer<? super K> action) {
+        for (int i = 0; i < keys.size(); i++) {
+            action.accept(keys.get(i), counts[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Long get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? counts[i] : null;
+    }
+
+    @Override
+    public Set<Entry<K, Long>> entrySet() {
+        return new AbstractSet<Entry<K, Long>>() {
+            @Override
+            public Iterator<Entry<K, Long>> iterator() {
+                return new Iterator<Entry<K, Long>>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < keys.size();
+                    }
+
+                    @Override
+                    public Entry<K, Long> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Entry<K, Long> entry = new SimpleImmutableEntry<>(keys.get(i), counts[i]);
+                        i++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        // Small results are just scanned, larger ones get a lookup table the first time one is needed
+        if (index == null && keys.size() > 8) {
+            index = new HashMap<>(keys.size() * 2);
+            for (int i = 0; i < keys.size(); i++) {
+                index.put(keys.get(i), i);
+            }
+        }
+
+        if (index != null) {
+            Integer i = index.get(key);
+            return i != null ? i : -1;
+        }
+        return keys.indexOf(key);
+    }
+
+    /**
+     * Collects the counts of groups as they are read, so the counts can't be changed once they are returned.
+     */
+    public static class Builder<K> {
+
+        private GroupCounts<K> counts;
+
+        private Builder(int initialCapacity) {
+            this.counts = new GroupCounts<>(initialCapacity);
+        }
+
+        /**
+         * Add the count of a group.  Counts for the same group are added together.
+         */
+        public Builder<K> add(K key, long count) {
+            Assert.state(counts != null, "The group counts were already built");
+            counts.add(key, count);
+            return this;
+        }
+
+        public GroupCounts<K> build() {
+            Assert.state(counts != null, "The group counts were already built");
+            GroupCounts<K> built = counts;
+            counts = null;
+            return built;
+        }
+    }
+}
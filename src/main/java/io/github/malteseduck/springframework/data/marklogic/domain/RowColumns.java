@@ -0,0 +1,111 @@
+package io.github.malteseduck.springframework.data.marklogic.domain;
+
+import java.util.*;
+
+/**
+ * Column-oriented result of an Optic row query.  Numeric and boolean columns are held in primitive arrays so large
+ * results can be used for calculations without boxing or building an object per row.  Columns of integer types
+ * ("xs:int", "xs:long", etc.) are returned from {@link #getLongs(String)}, "xs:double" and "xs:float" from
+ * {@link #getDoubles(String)}, "xs:boolean" from {@link #getBooleans(String)}, and everything else from
+ * {@link #getValues(String)}.
+ * <p>
+ * Columns can be referenced by their full name, i.e. "test.Person.age", or just the column name, i.e. "age", as long
+ * as that is not ambiguous.  Since primitive arrays can't hold nulls, use {@link #isNull(String, int)} to tell a null
+ * from a zero or false.
+ */
+public class RowColumns {
+
+    private final List<String> names;
+    private final List<String> types;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int size;
+
+    /**
+     * @param names   The names of the columns.
+     * @param types   The MarkLogic types of the columns, i.e. "xs:int".
+     * @param columns An array of values for each column, either a long[], double[], boolean[] or Object[].
+     * @param nulls   For each column, the rows that are null.
+     * @param size    The number of rows.
+     */
+    public RowColumns(List<String> names, List<String> types, Object[] columns, BitSet[] nulls, int size) {
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.types = Collections.unmodifiableList(new ArrayList<>(types));
+        this.columns = columns;
+        this.nulls = nulls;
+        this.size = size;
+    }
+
+    /**
+     * The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    public List<String> getColumnNames() {
+        return names;
+    }
+
+    public String getType(String column) {
+        return types.get(indexOf(column));
+    }
+
+    public long[] getLongs(String column) {
+        return column(column, long[].class);
+    }
+
+    public double[] getDoubles(String column) {
+        return column(column, double[].class);
+    }
+
+    public boolean[] getBooleans(String column) {
+        return column(column, boolean[].class);
+    }
+
+    public Object[] getValues(String column) {
+        return column(column, Object[].class);
+    }
+
+    public boolean isNull(String column, int row) {
+        return nulls[indexOf(column)].get(row);
+    }
+
+    /**
+     * Get a single value, boxing it if it is from a primitive column.
+     */
+    public Object get(String column, int row) {
+        int i = indexOf(column);
+        if (nulls[i].get(row)) return null;
+
+        Object values = columns[i];
+        if (values instanceof long[]) return ((long[]) values)[row];
+        if (values instanceof double[]) return ((double[]) values)[row];
+        if (values instanceof boolean[]) return ((boolean[]) values)[row];
+        return ((Object[]) values)[row];
+    }
+
+    private <A> A column(String column, Class<A> arrayType) {
+        Object values = columns[indexOf(column)];
+        if (!arrayType.isInstance(values)) {
+            throw new IllegalArgumentException(String.format("Column %s is of type %s, so it is not held as a %s",
+                    column, getType(column), arrayType.getSimpleName()));
+        }
+        return arrayType.cast(values);
+    }
+
+    private int indexOf(String column) {
+        int i = names.indexOf(column);
+        if (i >= 0) return i;
+
+        // Not the full name, so look for a single column that is qualified by a schema/view
+        for (int j = 0; j < names.size(); j++) {
+            if (names.get(j).endsWith("." + column)) {
+                if (i >= 0) throw new IllegalArgumentException(String.format("Column name %s is ambiguous", column));
+                i = j;
+            }
+        }
+        if (i < 0) throw new IllegalArgumentException(String.format("No column named %s", column));
+        return i;
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.malteseduck.springframework.data.marklogic.repository;
+
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.data.annotation.QueryAnnotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declare an Optic query on a repository method to query the row indexes (the views defined by TDE templates) instead
+ * of searching documents.  The query is written in the Optic query DSL, which is the same as the server-side JavaScript
+ * "op" API, so it can select, filter, group, order and join views, i.e.
+ * <pre>
+ * &#64;OpticQuery("op.fromView('test', 'Person')" +
+ *         ".where(op.eq(op.col('gender'), op.param('gender')))" +
+ *         ".groupBy(op.col('occupation'), op.count('total', 'name'))")
+ * List&lt;OccupationCount&gt; countOccupationsByGender(@Param("gender") String gender);
+ * </pre>
+ * Method parameters are bound to the "op.param()" placeholders of the same name, so they need to be named either with
+ * {@link org.springframework.data.repository.query.Param} or by compiling with "-parameters".  A
+ * {@link org.springframework.data.domain.Sort} or {@link org.springframework.data.domain.Pageable} parameter is applied
+ * to the end of the plan.
+ * <p>
+ * Rows are bound to the returned type (a list, stream or single instance of it) using the column names without the
+ * schema/view qualifier, or the method can return
+ * {@link io.github.malteseduck.springframework.data.marklogic.domain.RowColumns} to get the rows as columns.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+@Documented
+@QueryAnnotation
+public @interface OpticQuery {
+
+    /**
+     * The Optic query DSL for the plan to execute.
+     *
+     * @return The plan, i.e. "op.fromView('test', 'Person').where(op.eq(op.col('name'), op.param('name')))".
+     */
+    @AliasFor("query")
+    String value() default "";
+
+    @AliasFor("value")
+    String query() default "";
+}
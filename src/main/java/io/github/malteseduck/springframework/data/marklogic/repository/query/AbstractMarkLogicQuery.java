@@ -1,24 +1,32 @@
 package io.github.malteseduck.springframework.data.marklogic.repository.query;
 
 import com.marklogic.client.document.ServerTransform;
+import com.marklogic.client.io.Format;
 import com.marklogic.client.query.StructuredQueryDefinition;
 import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.ServerTransformer;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
 import io.github.malteseduck.springframework.data.marklogic.repository.Query;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.MarkLogicQueryExecution.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mapping.model.EntityInstantiators;
 import org.springframework.data.repository.query.*;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static io.github.malteseduck.springframework.data.marklogic.repository.query.CombinedQueryDefinitionBuilder.combine;
 
 public abstract class AbstractMarkLogicQuery implements RepositoryQuery {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMarkLogicQuery.class);
+    private static final EntityInstantiators INSTANTIATORS = new EntityInstantiators();
     private final MarkLogicQueryMethod method;
     private final MarkLogicOperations operations;
 
@@ -32,26 +40,29 @@ public abstract class AbstractMarkLogicQuery implements RepositoryQuery {
 
     @Override
     public Object execute(Object[] values) {
-        // TODO: projections are not enabled until we can add extracts to limit properties returned (based on projection interface)
         ParameterAccessor accessor = new ParametersParameterAccessor(method.getParameters(), values);
         StructuredQueryDefinition query = createQuery(accessor);
 
-//        ResultProcessor processor = method.getResultProcessor().withDynamicProjection(accessor);
-        ResultProcessor processor = method.getResultProcessor();
+        ResultProcessor processor = method.getResultProcessor().withDynamicProjection(accessor);
         ReturnedType returnedType = processor.getReturnedType();
         Class typeToRead = returnedType.getDomainType();
 
         // Add transforms and extracts to the query, if they are in the annotations
         query = transform(query, typeToRead, accessor);
-        query = extracts(query);
+        query = extracts(query, returnedType);
         query = searchOptions(query);
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Executing query " + query.serialize());
         }
 
-//        return processor.processResult(getExecution(accessor).execute(query, typeToRead));
-        return getExecution(accessor).execute(query, typeToRead);
+        Object result = getExecution(accessor).execute(query, typeToRead);
+
+        if (returnedType.isProjecting() && !returnedType.getReturnedType().isInterface()) {
+            return processor.processResult(result, new DtoInstantiatingConverter(returnedType.getReturnedType(),
+                    operations.getConverter().getMappingContext(), INSTANTIATORS));
+        }
+        return processor.processResult(result);
     }
 
     @Override
@@ -78,32 +89,58 @@ public abstract class AbstractMarkLogicQuery implements RepositoryQuery {
     }
 
     /**
-     * Add extracts to the created query, if any are specified.
+     * Add extracts to the created query, if any are specified.  If none are specified but the method returns a closed
+     * projection then the projection properties are extracted so only what is needed is sent back from the database.
      *
      * @param query
      * @return
      */
-    private StructuredQueryDefinition extracts(StructuredQueryDefinition query) {
+    private StructuredQueryDefinition extracts(StructuredQueryDefinition query, ReturnedType returnedType) {
         String[] extracts = method.getExtracts();
         if (extracts != null && extracts.length > 0) {
             query = combine(query).extracts(Arrays.asList(extracts));
+        } else if (returnedType.isProjecting() && !isCountQuery() && !isExistsQuery() && !isDeleteQuery()) {
+            List<String> paths = projectionPaths(returnedType);
+            if (!paths.isEmpty()) {
+                query = combine(query).extracts(paths);
+            }
         }
         return query;
     }
 
+    /**
+     * Determine the document paths of the properties used by a projection.  Open projections (that use SpEL) don't have
+     * input properties, so in that case nothing is returned and the whole document is read.
+     */
+    private List<String> projectionPaths(ReturnedType returnedType) {
+        MarkLogicPersistentEntity<?> entity = operations.getConverter().getMappingContext()
+                .getPersistentEntity(returnedType.getDomainType());
+        if (entity == null) return Collections.emptyList();
+
+        // XML documents have a root element named after the type, so skip over it
+        String root = Format.XML.equals(entity.getDocumentFormat()) ? "/*/" : "/";
+
+        return returnedType.getInputProperties().stream()
+                .map(entity::getPersistentProperty)
+                .filter(Objects::nonNull)
+                .map(property -> root + property.getFieldName())
+                .collect(Collectors.toList());
+    }
+
     private StructuredQueryDefinition searchOptions(StructuredQueryDefinition query) {
         String[] options = method.getSearchQueryOptions();
         if (options != null && options.length > 0) {
-            query = combine(query)
-                    .options(Arrays.stream(options).map(option ->
-                            "<search-option>" + option + "</search-option>").toArray(String[]::new)
-                    );
+            // These are added first so they take precedence over the defaults of the entity and template
+            query = combine(query).defaultSearchOptions(options);
         }
         return query;
     }
 
     private MarkLogicQueryExecution getExecution(ParameterAccessor accessor) {
-        if (isDeleteQuery()) {
+        MarkLogicQueryExecution valuesExecution = getValuesExecution(accessor);
+        if (valuesExecution != null) {
+            return valuesExecution;
+        } else if (isDeleteQuery()) {
             return new DeleteExecution(operations);
         } else if (isExistsQuery()) {
             return new ExistsExecution(operations);
@@ -124,6 +161,14 @@ public abstract class AbstractMarkLogicQuery implements RepositoryQuery {
         }
     }
 
+    /**
+     * Returns an execution that answers the query from range index values instead of documents, if the query is one that
+     * can be answered that way.
+     */
+    MarkLogicQueryExecution getValuesExecution(ParameterAccessor accessor) {
+        return null;
+    }
+
     protected abstract StructuredQueryDefinition createQuery(ParameterAccessor accessor);
 
     protected abstract boolean isCountQuery();
@@ -123,6 +123,18 @@ public interface CombinedQueryDefinition extends StructuredQueryDefinition {
      */
     CombinedQueryDefinition options(String... options);
 
+    /**
+     * Add search options (i.e. "unfiltered", "score-zero") to the query unless an option that configures the same thing
+     * is already set.  Filtering ("filtered"/"unfiltered") and scoring ("score-*") options each only have one value, so
+     * the first one set wins.  This allows the options of a repository method to take precedence over the defaults of
+     * an entity, which take precedence over the defaults of the template.
+     *
+     * @param searchOptions Variable number of search option names to add to the query.
+     *
+     * @return The current query definition for use in continued building.
+     */
+    CombinedQueryDefinition defaultSearchOptions(String... searchOptions);
+
     /**
      * Add sorting configuration to the query.  The default sort algorithm will expect
      * to use a path range index, i.e. if sorting on "name" then a path index of "/name" should exist.
@@ -262,6 +274,13 @@ public interface CombinedQueryDefinition extends StructuredQueryDefinition {
      */
     boolean isQbe();
 
+    /**
+     * Indicates whether or not sorting configuration has been added to this query.
+     *
+     * @return True if the results of the query are sorted by an index.
+     */
+    boolean isSorted();
+
     /**
      * Indicates whether or not a limit has been specified on this query.
      *
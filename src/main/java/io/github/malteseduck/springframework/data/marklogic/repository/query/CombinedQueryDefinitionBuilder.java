@@ -21,6 +21,8 @@ import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
@@ -51,6 +53,8 @@ public class CombinedQueryDefinitionBuilder extends AbstractQueryDefinition impl
     private ObjectMapper objectMapper = new ObjectMapper();
     private JsonNodeCreator factory = JsonNodeFactory.instance;
 
+    private static final Pattern SEARCH_OPTION = Pattern.compile("<search-option>([^<]*)</search-option>");
+
     public static CombinedQueryDefinition combine() {
         return new CombinedQueryDefinitionBuilder();
     }
@@ -65,9 +69,10 @@ public class CombinedQueryDefinitionBuilder extends AbstractQueryDefinition impl
             CombinedQueryDefinitionBuilder builder = (CombinedQueryDefinitionBuilder) query;
             this.structuredQuery = builder.getStructuredQuery();
             this.qbe = builder.getQbe();
-            this.extracts = builder.getExtracts();
+            // Copy the lists so options added to the combined query don't change the one it was created from
+            this.extracts = new ArrayList<>(builder.getExtracts());
             this.qtext = builder.getQtext();
-            this.options = builder.getOptions();
+            this.options = new ArrayList<>(builder.getOptions());
             this.qbeFormat = builder.getQbeFormat();
             this.criteria = builder.getCriteria();
             this.limit = builder.getLimit();
@@ -183,15 +188,10 @@ public class CombinedQueryDefinitionBuilder extends AbstractQueryDefinition impl
 
             if (isQbe() && qbeFormat == Format.XML) {
                 // TODO: Can we put the structured query in "additional-query" if the "main" query is a QBE?
-                // TODO: Support "true" XML QBE instead of converting the JSON to XML?
-                //noinspection HttpUrlsUsage
-                search.append("<q:qbe xmlns:q=\"http://marklogic.com/appservices/querybyexample\">");
-                JSONObject json = new JSONObject(qbe.toString());
                 // TODO: Somehow support namespaces?
-                search.append(XML.toString(json, "q:query").replace("<q:query", "<q:query xmlns=\"\""));
-                search.append("</q:qbe>");
+                search.append(QbeXmlWriter.write(qbe.toString()));
             } else if (structuredQuery != null) {
-                search.append(structuredQuery.serialize());
+                search.append(StructuredQueryOptimizer.optimize(structuredQuery.serialize()));
             }
 
             if (!optionsToSerialize.isEmpty())
@@ -315,6 +315,36 @@ public class CombinedQueryDefinitionBuilder extends AbstractQueryDefinition impl
         return this;
     }
 
+    @Override
+    public CombinedQueryDefinition defaultSearchOptions(String... searchOptions) {
+        if (searchOptions == null) return this;
+
+        List<String> existing = new ArrayList<>();
+        options.forEach(option -> {
+            Matcher matcher = SEARCH_OPTION.matcher(option);
+            while (matcher.find()) existing.add(matcher.group(1).trim());
+        });
+
+        for (String option : searchOptions) {
+            if (hasText(option) && existing.stream().noneMatch(set -> sameKind(set, option))) {
+                options(format("<search-option>%s</search-option>", option));
+                existing.add(option);
+            }
+        }
+        return this;
+    }
+
+    private static boolean sameKind(String a, String b) {
+        return a.equals(b)
+                || (a.endsWith("filtered") && b.endsWith("filtered"))
+                || (a.startsWith("score-") && b.startsWith("score-"));
+    }
+
+    @Override
+    public boolean isSorted() {
+        return options.stream().anyMatch(option -> option.contains("<sort-order"));
+    }
+
     @Override
     public CombinedQueryDefinition sort(Sort sort) {
         if (sort != null && sort.iterator().hasNext()) {
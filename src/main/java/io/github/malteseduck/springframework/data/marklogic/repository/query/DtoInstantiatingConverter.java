@@ -0,0 +1,74 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PreferredConstructor;
+import org.springframework.data.mapping.SimplePropertyHandler;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mapping.model.EntityInstantiator;
+import org.springframework.data.mapping.model.EntityInstantiators;
+import org.springframework.data.mapping.model.ParameterValueProvider;
+import org.springframework.util.Assert;
+
+/**
+ * Copies the values of a read entity into a DTO projection, using the DTO constructor for properties that are constructor
+ * arguments and the setters/fields for the rest.  The entity is expected to have been read with only the properties the
+ * DTO needs extracted, so anything else will just be null.
+ */
+class DtoInstantiatingConverter implements Converter<Object, Object> {
+
+    // DTOs aren't stored, so they get their own mapping context instead of showing up as entities (i.e. when indexes
+    // or templates are created for all the entities of the application)
+    private static final MarkLogicMappingContext DTO_CONTEXT = new MarkLogicMappingContext();
+
+    private final Class<?> targetType;
+    private final MappingContext<? extends PersistentEntity<?, ?>, ? extends PersistentProperty<?>> context;
+    private final EntityInstantiator instantiator;
+
+    DtoInstantiatingConverter(Class<?> dtoType,
+                              MappingContext<? extends PersistentEntity<?, ?>, ? extends PersistentProperty<?>> context,
+                              EntityInstantiators instantiators) {
+        Assert.notNull(dtoType, "DTO type must not be null!");
+        Assert.notNull(context, "MappingContext must not be null!");
+        Assert.notNull(instantiators, "EntityInstantiators must not be null!");
+
+        this.targetType = dtoType;
+        this.context = context;
+        this.instantiator = instantiators.getInstantiatorFor(DTO_CONTEXT.getRequiredPersistentEntity(dtoType));
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Object convert(Object source) {
+        final PersistentEntity<?, ?> sourceEntity = context.getRequiredPersistentEntity(source.getClass());
+        final PersistentPropertyAccessor sourceAccessor = sourceEntity.getPropertyAccessor(source);
+        final PersistentEntity<?, ?> targetEntity = DTO_CONTEXT.getRequiredPersistentEntity(targetType);
+        final PreferredConstructor<?, ? extends PersistentProperty<?>> constructor = targetEntity.getPersistenceConstructor();
+
+        Object dto = instantiator.createInstance(targetEntity, new ParameterValueProvider() {
+            @Override
+            public Object getParameterValue(PreferredConstructor.Parameter parameter) {
+                return valueOf(sourceEntity, sourceAccessor, parameter.getName());
+            }
+        });
+
+        final PersistentPropertyAccessor dtoAccessor = targetEntity.getPropertyAccessor(dto);
+
+        targetEntity.doWithProperties((SimplePropertyHandler) property -> {
+            if (constructor != null && constructor.isConstructorParameter(property)) {
+                return;
+            }
+            dtoAccessor.setProperty(property, valueOf(sourceEntity, sourceAccessor, property.getName()));
+        });
+
+        return dto;
+    }
+
+    private Object valueOf(PersistentEntity<?, ?> entity, PersistentPropertyAccessor<?> accessor, String name) {
+        PersistentProperty<?> property = name != null ? entity.getPersistentProperty(name) : null;
+        return property != null ? accessor.getProperty(property) : null;
+    }
+}
@@ -23,12 +23,14 @@ import com.marklogic.client.query.StructuredQueryBuilder.RangeIndex;
 import com.marklogic.client.query.StructuredQueryBuilder.TextIndex;
 import com.marklogic.client.query.StructuredQueryDefinition;
 import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.PropertyIndex;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.convert.QueryConversionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentEntity;
 import org.springframework.data.mapping.PersistentPropertyPath;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.repository.query.ParameterAccessor;
@@ -38,9 +40,11 @@ import org.springframework.data.repository.query.parser.Part.Type;
 import org.springframework.data.repository.query.parser.PartTree;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static com.marklogic.client.query.StructuredQueryBuilder.Operator.*;
@@ -57,6 +61,11 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
     private final QueryConversionService converter;
     private final MappingContext<?, MarkLogicPersistentProperty> context;
     private final StructuredQueryBuilder qb = new StructuredQueryBuilder();
+    private final IndexCatalog catalog;
+    private final QueryIndexAnalyzer indexes;
+
+    // Queries are created each time a method is called, so only warn about each missing sort index once
+    private static final Set<String> WARNED_SORTS = ConcurrentHashMap.newKeySet();
 
     public MarkLogicQueryCreator(PartTree tree, ParameterAccessor accessor, MarkLogicOperations operations, MappingContext<?, MarkLogicPersistentProperty> context, MarkLogicQueryMethod method) {
         super(tree, accessor);
@@ -68,6 +77,8 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
         this.context = context;
         this.method = method;
         this.converter = operations.getQueryConversionService();
+        this.catalog = operations.isIndexAwareQuerying() ? operations.getIndexCatalog() : null;
+        this.indexes = catalog != null ? new QueryIndexAnalyzer(catalog) : null;
     }
 
     /*
@@ -103,6 +114,8 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
      */
     @Override
     protected StructuredQueryDefinition complete(StructuredQueryDefinition criteria, Sort sort) {
+        if (indexes != null && sort != null) warnUnindexed(sort);
+
         StructuredQueryDefinition query =
                 combine(criteria)
                         .type(method.getEntityInformation().getJavaType())
@@ -112,6 +125,17 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
         return query;
     }
 
+    private void warnUnindexed(Sort sort) {
+        Class<?> type = method.getEntityInformation().getJavaType();
+        PersistentEntity<?, MarkLogicPersistentProperty> entity = context.getPersistentEntity(type);
+        for (Sort.Order order : sort) {
+            String problem = indexes.analyzeSort(order, entity);
+            if (problem != null && WARNED_SORTS.add(type.getName() + problem)) {
+                LOG.warn("{} {}: {}", type.getSimpleName(), method.getName(), problem);
+            }
+        }
+    }
+
     private StructuredQueryDefinition scope(Part part, PersistentPropertyPath<MarkLogicPersistentProperty> path, Iterator<Object> iterator) {
         if (path.getLength() <= 1) {
             return from(part, path.getLeafProperty(), path.toDotPath(), iterator);
@@ -157,12 +181,12 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
             case IS_NULL:
                 return createValueCriteria(property, null, ignoreCase);
             case NOT_IN:
-                return qb.not(createValueCriteria(property, parameters.next(), ignoreCase));
+                return qb.not(createInCriteria(property, parameters.next(), ignoreCase));
             case IN:
-                return createValueCriteria(property, parameters.next(), ignoreCase);
+                return createInCriteria(property, parameters.next(), ignoreCase);
             case LIKE:
             case STARTING_WITH:
-                return createWordCriteria(property, formatWords(parameters.next(), "%s*"), ignoreCase);
+                return createPrefixCriteria(property, formatWords(parameters.next(), "%s*"), ignoreCase);
             case ENDING_WITH:
                 return createWordCriteria(property, formatWords(parameters.next(), "*%s"), ignoreCase);
             case CONTAINING:
@@ -225,6 +249,14 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
     private StructuredQueryDefinition createValueCriteria(MarkLogicPersistentProperty property, Object values, boolean ignoreCase) {
         if (QueryType.RANGE == method.getQueryType()) return createRangeCriteria(property, EQ, values);
 
+        // Matching values from a range index is cheaper than a value query, but the range query can't be case-insensitive
+        // and only works on top-level properties since the path index isn't scoped to the containing property
+        if (indexes != null && values != null && !ignoreCase
+                && property.getOwner().getType() == method.getEntityInformation().getJavaType()
+                && indexes.isRangeIndexed(property)) {
+            return createRangeCriteria(property, EQ, values);
+        }
+
         TextIndex index = getTextIndex(property.getName());
 
         List<String> options = new ArrayList<>();
@@ -235,11 +267,32 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
         return converter.convert(new PropertyIndex(index, QueryType.VALUE).withProperty(property), values, options);
     }
 
-    private StructuredQueryDefinition createRangeCriteria(MarkLogicPersistentProperty property, Operator operator, Object values) {
+    /**
+     * A long list of ids is matched by the URIs of the documents, since every value in a value query has to be looked up
+     * separately and the request gets large.  The URIs are created the same way they are when the entities are saved.
+     */
+    private StructuredQueryDefinition createInCriteria(MarkLogicPersistentProperty property, Object values, boolean ignoreCase) {
+        Class<?> type = method.getEntityInformation().getJavaType();
+        if (property.isIdProperty() && !ignoreCase && property.getOwner().getType() == type) {
+            Object[] ids = values instanceof Collection
+                    ? ((Collection<?>) values).toArray()
+                    : values != null && values.getClass().isArray() ? ObjectUtils.toObjectArray(values) : null;
+
+            if (ids != null && ids.length > operations.getDocumentQueryThreshold()) {
+                List<String> uris = operations.getConverter().getDocumentUris(asList(ids), type);
+                return qb.document(uris.toArray(new String[0]));
+            }
+        }
+
+        return createValueCriteria(property, values, ignoreCase);
+    }
+
+    private StructuredQueryDefinition createRangeCriteria(MarkLogicPersistentProperty property, Operator operator, Object values, String... rangeOptions) {
         RangeIndex index = getRangeIndex(property);
 
         List<String> options = new ArrayList<>();
         Collections.addAll(options, method.getQueryOptions());
+        Collections.addAll(options, rangeOptions);
 
         return converter.convert(
                 new PropertyIndex(index, QueryType.RANGE)
@@ -252,7 +305,39 @@ class MarkLogicQueryCreator extends AbstractQueryCreator<StructuredQueryDefiniti
         return createWordCriteria(property, words, false);
     }
 
+    /**
+     * A prefix is matched with a trailing wildcard word query, unless the wildcard indexes can't resolve that and there is
+     * a codepoint collation range index on the property to match the prefix from instead.  The range query matches the
+     * start of the whole value rather than the start of any word in it, which is what "StartingWith" means anyway.
+     */
+    private StructuredQueryDefinition createPrefixCriteria(MarkLogicPersistentProperty property, String[] words, boolean ignoreCase) {
+        if (catalog != null && words.length == 1 && words[0].endsWith("*") && !ignoreCase && !catalog.canResolveWildcard(words[0])
+                && property.getOwner().getType() == method.getEntityInformation().getJavaType()) {
+            String prefix = words[0].substring(0, words[0].length() - 1);
+            String collation = indexes.getPrefixCollation(property);
+
+            if (collation != null && !prefix.isEmpty() && prefix.indexOf('*') < 0 && prefix.indexOf('?') < 0) {
+                // Everything that starts with the prefix sorts between it and the prefix with its last character incremented
+                char last = prefix.charAt(prefix.length() - 1);
+                if (last != Character.MAX_VALUE) {
+                    return qb.and(
+                            createRangeCriteria(property, GE, prefix, "collation=" + collation),
+                            createRangeCriteria(property, LT, prefix.substring(0, prefix.length() - 1) + (char) (last + 1), "collation=" + collation)
+                    );
+                }
+            }
+        }
+
+        return createWordCriteria(property, words, ignoreCase);
+    }
+
     private StructuredQueryDefinition createWordCriteria(MarkLogicPersistentProperty property, String[] words, boolean ignoreCase) {
+        if (catalog != null) {
+            for (String word : words) {
+                if (!catalog.canResolveWildcard(word)) operations.getWildcardPolicy().unresolvable(word, property.getName());
+            }
+        }
+
         TextIndex index = getTextIndex(property.getName());
 
         List<String> options = new ArrayList<>();
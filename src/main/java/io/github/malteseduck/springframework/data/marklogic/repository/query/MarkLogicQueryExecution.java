@@ -1,6 +1,7 @@
 package io.github.malteseduck.springframework.data.marklogic.repository.query;
 
 import com.marklogic.client.query.StructuredQueryDefinition;
+import io.github.malteseduck.springframework.data.marklogic.core.Aggregate;
 import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,7 +10,6 @@ import org.springframework.util.Assert;
 interface MarkLogicQueryExecution {
 
     // TODO: Is this approach overly complicated for one-line calls to the operations?
-    // TODO: Add support for values queries (FacetResults)?
 
     Object execute(StructuredQueryDefinition query, Class<?> type);
 
@@ -178,4 +178,67 @@ interface MarkLogicQueryExecution {
         }
     }
 
+    final class AggregateExecution implements MarkLogicQueryExecution {
+
+        private final MarkLogicOperations operations;
+        private final String propertyName;
+        private final Aggregate aggregate;
+
+        AggregateExecution(MarkLogicOperations operations, String propertyName, Aggregate aggregate) {
+            Assert.notNull(operations, "MarkLogicOperations must not be null!");
+            this.operations = operations;
+            this.propertyName = propertyName;
+            this.aggregate = aggregate;
+        }
+
+        @Override
+        public Object execute(StructuredQueryDefinition query, Class<?> type) {
+            return operations.aggregate(query, type, propertyName, aggregate);
+        }
+    }
+
+    final class GroupCountExecution implements MarkLogicQueryExecution {
+
+        private final MarkLogicOperations operations;
+        private final String[] propertyNames;
+
+        GroupCountExecution(MarkLogicOperations operations, String... propertyNames) {
+            Assert.notNull(operations, "MarkLogicOperations must not be null!");
+            this.operations = operations;
+            this.propertyNames = propertyNames;
+        }
+
+        @Override
+        public Object execute(StructuredQueryDefinition query, Class<?> type) {
+            return operations.groupCount(query, type, propertyNames);
+        }
+    }
+
+    final class DistinctValuesExecution implements MarkLogicQueryExecution {
+
+        private final MarkLogicOperations operations;
+        private final String propertyName;
+        private final Integer maxResults;
+        private final Pageable pageable;
+
+        DistinctValuesExecution(MarkLogicOperations operations, String propertyName, Integer maxResults, Pageable pageable) {
+            Assert.notNull(operations, "MarkLogicOperations must not be null!");
+            this.operations = operations;
+            this.propertyName = propertyName;
+            this.maxResults = maxResults;
+            this.pageable = pageable != null ? pageable : Pageable.unpaged();
+        }
+
+        @Override
+        public Object execute(StructuredQueryDefinition query, Class<?> type) {
+            if (maxResults != null) {
+                return operations.distinctValues(query, type, propertyName, null, 0, maxResults);
+            } else if (pageable.isPaged()) {
+                return operations.distinctValues(query, type, propertyName, null, pageable.getOffset(), pageable.getPageSize());
+            } else {
+                return operations.distinctValues(query, type, propertyName, null, 0, Integer.MAX_VALUE);
+            }
+        }
+    }
+
 }
@@ -19,6 +19,7 @@ import com.marklogic.client.io.Format;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetedPage;
+import io.github.malteseduck.springframework.data.marklogic.repository.OpticQuery;
 import io.github.malteseduck.springframework.data.marklogic.repository.Query;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -40,6 +41,7 @@ public class MarkLogicQueryMethod extends QueryMethod {
     private final Format format;
     private final Class domainClass;
     private Query queryAnnotation;
+    private OpticQuery opticQueryAnnotation;
     private final MappingContext<? extends MarkLogicPersistentEntity<?>, MarkLogicPersistentProperty> mappingContext;
 
     public MarkLogicQueryMethod(Method method, RepositoryMetadata metadata, ProjectionFactory projectionFactory,
@@ -84,6 +86,18 @@ public class MarkLogicQueryMethod extends QueryMethod {
         return StringUtils.hasText(query) ? query : null;
     }
 
+    public boolean hasOpticQuery() {
+        return getOpticQuery() != null;
+    }
+
+    String getOpticQuery() {
+        if (opticQueryAnnotation == null) {
+            opticQueryAnnotation = AnnotatedElementUtils.findMergedAnnotation(method, OpticQuery.class);
+        }
+        String query = (String) AnnotationUtils.getValue(opticQueryAnnotation);
+        return StringUtils.hasText(query) ? query : null;
+    }
+
     String[] getQueryOptions() {
         return getQueryAnnotation() != null
                 ? getQueryAnnotation().options()
@@ -0,0 +1,133 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import com.marklogic.client.expression.PlanBuilder;
+import com.marklogic.client.io.StringHandle;
+import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
+import io.github.malteseduck.springframework.data.marklogic.repository.OpticQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.*;
+import org.springframework.util.Assert;
+
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Executes the Optic plan of an {@link OpticQuery} annotated repository method against the row indexes, binding the
+ * method parameters to the plan parameters of the same name.
+ */
+public class OpticMarkLogicQuery implements RepositoryQuery {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OpticMarkLogicQuery.class);
+
+    // Sort properties end up in the plan, so only allow column names
+    private static final Pattern COLUMN_NAME = Pattern.compile("[\\w.\\-]+");
+
+    private final MarkLogicQueryMethod method;
+    private final MarkLogicOperations operations;
+    private final String query;
+
+    public OpticMarkLogicQuery(MarkLogicQueryMethod method, MarkLogicOperations operations) {
+        Assert.notNull(operations, "MarkLogicOperations must not be null!");
+        Assert.notNull(method, "MarkLogicQueryMethod must not be null!");
+
+        this.method = method;
+        this.operations = operations;
+        this.query = method.getOpticQuery();
+
+        Assert.hasText(query, "An Optic query is required");
+        // Counting the rows of an arbitrary plan would mean running it twice, so only pass the page on to the plan
+        Assert.isTrue(!method.isPageQuery() && !method.isSliceQuery(), String.format(
+                "%s cannot return a Page or Slice from an Optic query, return a List and pass a Pageable instead",
+                method.getName()));
+        for (Parameter parameter : method.getParameters().getBindableParameters()) {
+            Assert.isTrue(parameter.getName().isPresent(), String.format(
+                    "Parameter %d of %s needs a name to bind it to the Optic query, either use @Param or compile with -parameters",
+                    parameter.getIndex(), method.getName()));
+        }
+    }
+
+    @Override
+    public Object execute(Object[] values) {
+        ParameterAccessor accessor = new ParametersParameterAccessor(method.getParameters(), values);
+        String dsl = query + orderBy(accessor.getSort()) + offsetLimit(accessor.getPageable());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Executing Optic query " + dsl);
+        }
+
+        PlanBuilder.Plan plan = operations.executeWithClient((client, transaction) ->
+                client.newRowManager().newRawQueryDSLPlan(new StringHandle(dsl)));
+
+        for (Parameter parameter : method.getParameters().getBindableParameters()) {
+            plan = bind(plan, parameter.getName().get(), values[parameter.getIndex()]);
+        }
+
+        Class<?> rowType = method.getReturnedObjectType();
+        if (RowColumns.class.equals(rowType)) {
+            return operations.columns(plan);
+        }
+
+        List<?> rows = operations.rows(plan, rowType);
+        if (method.isStreamQuery()) {
+            return rows.stream();
+        } else if (method.isCollectionQuery()) {
+            return rows;
+        } else {
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+    }
+
+    @Override
+    public QueryMethod getQueryMethod() {
+        return method;
+    }
+
+    private PlanBuilder.Plan bind(PlanBuilder.Plan plan, String name, Object value) {
+        if (value == null) {
+            throw new InvalidDataAccessApiUsageException(String.format("Cannot bind a null value to Optic parameter %s", name));
+        } else if (value instanceof Integer) {
+            return plan.bindParam(name, (int) value);
+        } else if (value instanceof Long) {
+            return plan.bindParam(name, (long) value);
+        } else if (value instanceof Double) {
+            return plan.bindParam(name, (double) value);
+        } else if (value instanceof Float) {
+            return plan.bindParam(name, (float) value);
+        } else if (value instanceof Short) {
+            return plan.bindParam(name, (short) value);
+        } else if (value instanceof Byte) {
+            return plan.bindParam(name, (byte) value);
+        } else if (value instanceof Boolean) {
+            return plan.bindParam(name, (boolean) value);
+        } else if (value instanceof Date) {
+            return plan.bindParam(name, ((Date) value).toInstant().toString());
+        } else {
+            return plan.bindParam(name, value.toString());
+        }
+    }
+
+    static String orderBy(Sort sort) {
+        if (sort == null || sort.isUnsorted()) return "";
+
+        return sort.stream()
+                .map(order -> {
+                    if (!COLUMN_NAME.matcher(order.getProperty()).matches()) {
+                        throw new InvalidDataAccessApiUsageException(String.format("Cannot sort by %s, it is not a column name", order.getProperty()));
+                    }
+                    return (order.isAscending() ? "op.asc('" : "op.desc('") + order.getProperty() + "')";
+                })
+                .collect(Collectors.joining(", ", ".orderBy([", "])"));
+    }
+
+    static String offsetLimit(Pageable pageable) {
+        if (pageable == null || pageable.isUnpaged()) return "";
+        return ".offsetLimit(" + pageable.getOffset() + ", " + pageable.getPageSize() + ")";
+    }
+}
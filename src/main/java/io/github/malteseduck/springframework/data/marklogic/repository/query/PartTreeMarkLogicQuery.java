@@ -1,12 +1,20 @@
 package io.github.malteseduck.springframework.data.marklogic.repository.query;
 
 import com.marklogic.client.query.StructuredQueryDefinition;
+import io.github.malteseduck.springframework.data.marklogic.core.Aggregate;
 import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
+import org.springframework.data.mapping.PersistentEntity;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.repository.query.ParameterAccessor;
 import org.springframework.data.repository.query.ResultProcessor;
 import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class PartTreeMarkLogicQuery extends AbstractMarkLogicQuery {
 
@@ -14,14 +22,82 @@ public class PartTreeMarkLogicQuery extends AbstractMarkLogicQuery {
     private final MappingContext<?, MarkLogicPersistentProperty> context;
     private final MarkLogicOperations operations;
     private final ResultProcessor processor;
+    private final MarkLogicQueryExecution valuesExecution;
+    private final String distinctProperty;
+
+    private static final Pattern AGGREGATE_TEMPLATE = Pattern.compile("^(sum|avg|min|max)(\\p{Lu}.*?)(By.*)?$");
+    private static final Pattern GROUP_COUNT_TEMPLATE = Pattern.compile("^count(By.*?)?GroupBy(\\p{Lu}.*)$");
+    private static final Pattern DISTINCT_TEMPLATE = Pattern.compile("^(?:find|read|get|query|search|stream)Distinct(?:(?:First|Top)\\d*)?(\\p{Lu}.*?)By.*$");
+    private static final String GROUP_PROPERTY_SEPARATOR = "And(?=(\\p{Lu}|\\P{InBASIC_LATIN}))";
 
     public PartTreeMarkLogicQuery(MarkLogicQueryMethod method, MarkLogicOperations operations) {
         super(method, operations);
 
         this.processor = method.getResultProcessor();
-        this.tree = new PartTree(method.getName(), processor.getReturnedType().getDomainType());
         this.operations = operations;
         this.context = operations.getConverter().getMappingContext();
+
+        Class<?> domainType = processor.getReturnedType().getDomainType();
+
+        // Aggregates like "sumAgeByGender" and groupings like "countByOccupationGroupByGender" aren't understood by the
+        // part tree, so pull off the parts it doesn't know about and parse the rest as a normal finder
+        Matcher aggregateMatcher = AGGREGATE_TEMPLATE.matcher(method.getName());
+        Matcher groupCountMatcher = GROUP_COUNT_TEMPLATE.matcher(method.getName());
+        this.tree = criteriaTree(method.getName(), domainType);
+        if (aggregateMatcher.matches()) {
+            this.distinctProperty = null;
+            this.valuesExecution = new MarkLogicQueryExecution.AggregateExecution(operations,
+                    StringUtils.uncapitalize(aggregateMatcher.group(2)),
+                    Aggregate.valueOf(aggregateMatcher.group(1).toUpperCase()));
+        } else if (groupCountMatcher.matches()) {
+            this.distinctProperty = null;
+            this.valuesExecution = new MarkLogicQueryExecution.GroupCountExecution(operations,
+                    Arrays.stream(groupCountMatcher.group(2).split(GROUP_PROPERTY_SEPARATOR))
+                            .map(StringUtils::uncapitalize)
+                            .toArray(String[]::new));
+        } else {
+            this.distinctProperty = distinctProperty(method, domainType);
+            this.valuesExecution = null;
+        }
+    }
+
+    /**
+     * Methods like "findDistinctNameByGender" return the distinct values of a property, but the part tree ignores the
+     * property so check for it here.  Only names that are actually properties of the entity count, since the subject of
+     * a finder can contain other descriptive text, and only when the method returns values of the property rather than
+     * entities or projections.
+     */
+    private String distinctProperty(MarkLogicQueryMethod method, Class<?> domainType) {
+        Matcher distinctMatcher = DISTINCT_TEMPLATE.matcher(method.getName());
+        if (!tree.isDistinct() || !distinctMatcher.matches()) return null;
+
+        String propertyName = StringUtils.uncapitalize(distinctMatcher.group(1));
+        PersistentEntity<?, MarkLogicPersistentProperty> entity = context.getPersistentEntity(domainType);
+        MarkLogicPersistentProperty property = entity != null ? entity.getPersistentProperty(propertyName) : null;
+        if (property == null) return null;
+
+        Class<?> returnedType = method.getReturnedObjectType();
+        boolean returnsValues = returnedType != domainType
+                && ClassUtils.isAssignable(ClassUtils.resolvePrimitiveIfNecessary(returnedType), property.getActualType());
+        return returnsValues ? propertyName : null;
+    }
+
+    /**
+     * Parse the criteria of a query method name, leaving off the aggregate or grouping that the part tree doesn't
+     * understand.
+     */
+    static PartTree criteriaTree(String methodName, Class<?> domainType) {
+        Matcher aggregateMatcher = AGGREGATE_TEMPLATE.matcher(methodName);
+        if (aggregateMatcher.matches()) return new PartTree(finder(aggregateMatcher.group(3)), domainType);
+
+        Matcher groupCountMatcher = GROUP_COUNT_TEMPLATE.matcher(methodName);
+        if (groupCountMatcher.matches()) return new PartTree(finder(groupCountMatcher.group(1)), domainType);
+
+        return new PartTree(methodName, domainType);
+    }
+
+    private static String finder(String criteria) {
+        return "find" + (criteria != null ? criteria : "AllBy");
     }
 
     @Override
@@ -37,6 +113,15 @@ public class PartTreeMarkLogicQuery extends AbstractMarkLogicQuery {
         return query;
     }
 
+    @Override
+    MarkLogicQueryExecution getValuesExecution(ParameterAccessor accessor) {
+        if (distinctProperty != null) {
+            return new MarkLogicQueryExecution.DistinctValuesExecution(operations, distinctProperty,
+                    tree.isLimiting() ? tree.getMaxResults() : null, accessor.getPageable());
+        }
+        return valuesExecution;
+    }
+
     @Override
     protected boolean isCountQuery() {
         return tree.isCountProjection();
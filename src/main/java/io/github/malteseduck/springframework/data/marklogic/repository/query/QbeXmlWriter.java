@@ -0,0 +1,109 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import io.github.malteseduck.springframework.data.marklogic.core.convert.JacksonMarkLogicConverter;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Writes a query by example, which is written as a (relaxed) JSON object in the {@code @Query} annotation, as an XML
+ * query by example.  The JSON is streamed straight into the XML without building a tree of either.  Each property
+ * becomes an element, the values of arrays become repeated elements, and properties that start with "$" (i.e.
+ * "$or") become elements in the query by example namespace (i.e. "q:or") that hold all of their criteria.  Each object
+ * in the array of an operator is a "q:and" of its own, so { $or: [ { a: 1, b: 2 }, { c: 3 } ] } stays (a and b) or c.
+ */
+final class QbeXmlWriter {
+
+    static final String QBE_NS = "http://marklogic.com/appservices/querybyexample";
+
+    // Factories are thread-safe once configured, so share them rather than looking up the implementation every time
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .build();
+
+    private QbeXmlWriter() {}
+
+    /**
+     * @param qbe The query by example, as JSON.
+     *
+     * @return The query by example, as a "q:qbe" element.
+     */
+    static String write(String qbe) {
+        StringWriter out = new StringWriter();
+        try (JsonParser parser = JSON.createParser(qbe)) {
+            XMLStreamWriter xml = JacksonMarkLogicConverter.getXmlOutputFactory().createXMLStreamWriter(out);
+            xml.setPrefix("q", QBE_NS);
+            xml.writeStartElement("q", "qbe", QBE_NS);
+            xml.writeNamespace("q", QBE_NS);
+            xml.writeStartElement("q", "query", QBE_NS);
+            // Elements of the documents being queried aren't in a namespace
+            xml.writeDefaultNamespace("");
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("A query by example must be an object: " + qbe);
+            }
+            writeProperties(parser, xml);
+
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.close();
+        } catch (IOException | XMLStreamException ex) {
+            throw new IllegalArgumentException(qbe, ex);
+        }
+        return out.toString();
+    }
+
+    private static void writeProperties(JsonParser parser, XMLStreamWriter xml) throws IOException, XMLStreamException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            writeValue(name, parser, xml);
+        }
+    }
+
+    private static void writeValue(String name, JsonParser parser, XMLStreamWriter xml) throws IOException, XMLStreamException {
+        boolean operator = name.startsWith("$");
+
+        if (parser.currentToken() == JsonToken.START_ARRAY && !operator) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                writeValue(name, parser, xml);
+            }
+            return;
+        }
+
+        if (operator) {
+            xml.writeStartElement("q", name.substring(1), QBE_NS);
+        } else {
+            xml.writeStartElement(name);
+        }
+
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            // The criteria of an operator, i.e. "$or", are all children of the one operator element, with the properties
+            // of each object kept together so the operator applies to the objects rather than all of their properties
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                boolean object = parser.currentToken() == JsonToken.START_OBJECT;
+                if (object) xml.writeStartElement("q", "and", QBE_NS);
+                writeContent(parser, xml);
+                if (object) xml.writeEndElement();
+            }
+        } else {
+            writeContent(parser, xml);
+        }
+        xml.writeEndElement();
+    }
+
+    private static void writeContent(JsonParser parser, XMLStreamWriter xml) throws IOException, XMLStreamException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            writeProperties(parser, xml);
+        } else {
+            xml.writeCharacters(parser.getText());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.RangeIndex;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.Part.Type;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.springframework.data.repository.query.parser.Part.Type.*;
+
+/**
+ * Determines whether the range queries and sorts a query method creates can be resolved by the indexes configured on a
+ * database.  A range query or sort without an index fails when it is run, so this finds the problems before the
+ * queries are.  Only what is known from the method is checked, which excludes sorting passed in a {@link Sort} or
+ * {@link org.springframework.data.domain.Pageable} parameter.
+ */
+public class QueryIndexAnalyzer {
+
+    private static final Set<Type> RANGE_TYPES = EnumSet.of(
+            AFTER, GREATER_THAN, GREATER_THAN_EQUAL, BEFORE, LESS_THAN, LESS_THAN_EQUAL, BETWEEN);
+
+    // The criteria that become range queries instead of value queries with @Query(type = QueryType.RANGE)
+    private static final Set<Type> VALUE_TYPES = EnumSet.of(
+            SIMPLE_PROPERTY, NEGATING_SIMPLE_PROPERTY, IN, NOT_IN, IS_NULL, IS_NOT_NULL, TRUE, FALSE);
+
+    // i.e. { age: { $gt: 20 } } in a query by example
+    private static final Pattern QBE_RANGE = Pattern.compile("['\"]?([\\w.\\-]+)['\"]?\\s*:\\s*\\{\\s*['\"]?\\$(lt|le|gt|ge)\\b");
+    private static final Pattern QBE_FILTERED = Pattern.compile("['\"]?\\$filtered['\"]?\\s*:\\s*true\\b");
+
+    private final IndexCatalog catalog;
+
+    public QueryIndexAnalyzer(IndexCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Check the indexes needed by the query method.
+     *
+     * @return Descriptions of the problems found, or an empty list if the method's queries can be resolved.
+     */
+    public List<String> analyze(MarkLogicQueryMethod method) {
+        List<String> problems = new ArrayList<>();
+
+        // Optic queries run against TDE views rather than range indexes
+        if (method.hasOpticQuery()) return problems;
+
+        if (Arrays.asList(method.getSearchQueryOptions()).contains("filtered")) {
+            problems.add("uses a filtered search");
+        }
+
+        MarkLogicPersistentEntity<?> entity = method.getMappingContext().getPersistentEntity(method.getEntityInformation().getJavaType());
+
+        if (method.hasAnnotatedQuery()) {
+            analyzeExample(method.getAnnotatedQuery(), entity, problems);
+        } else {
+            analyzeTree(PartTreeMarkLogicQuery.criteriaTree(method.getName(), method.getEntityInformation().getJavaType()), method, entity, problems);
+        }
+
+        return problems;
+    }
+
+    private void analyzeTree(PartTree tree, MarkLogicQueryMethod method, MarkLogicPersistentEntity<?> entity, List<String> problems) {
+        for (Part part : tree.getParts()) {
+            boolean range = RANGE_TYPES.contains(part.getType())
+                    || (method.getQueryType() == QueryType.RANGE && VALUE_TYPES.contains(part.getType()));
+            if (!range) continue;
+
+            MarkLogicPersistentProperty property = method.getMappingContext()
+                    .getPersistentPropertyPath(part.getProperty())
+                    .getLeafProperty();
+
+            RangeIndex index = RangeIndex.forProperty(property);
+            if (index == null) {
+                problems.add(String.format("%s can't be used in a range query because its type can't be range indexed", part.getProperty().toDotPath()));
+            } else if (!catalog.covers(index)) {
+                problems.add(String.format("range query on %s needs a range index on %s", part.getProperty().toDotPath(), index));
+            }
+        }
+
+        for (Sort.Order order : tree.getSort()) {
+            String problem = analyzeSort(order, entity);
+            if (problem != null) problems.add(problem);
+        }
+    }
+
+    private void analyzeExample(String query, MarkLogicPersistentEntity<?> entity, List<String> problems) {
+        if (QBE_FILTERED.matcher(query).find()) {
+            problems.add("uses a filtered search");
+        }
+
+        Matcher matcher = QBE_RANGE.matcher(query);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            MarkLogicPersistentProperty property = entity != null ? findByFieldName(entity, name) : null;
+            RangeIndex index = property != null ? RangeIndex.forProperty(property) : null;
+
+            // Query by example range queries always use element (JSON property) range indexes
+            boolean resolvable = index != null && index.getType() == IndexType.ELEMENT
+                    ? catalog.covers(index)
+                    : catalog.hasRangeIndex(IndexType.ELEMENT, name);
+            if (!resolvable) {
+                problems.add(String.format("$%s on %s needs an element range index on %s", matcher.group(2), name, name));
+            }
+        }
+    }
+
+    /**
+     * Check that there is an index for sorting by the order's property.
+     *
+     * @return A description of the problem, or null if the sort can be resolved.
+     */
+    String analyzeSort(Sort.Order order, PersistentEntity<?, MarkLogicPersistentProperty> entity) {
+        // Follows the same rules as CombinedQueryDefinition#sort(Sort) does to build the sort options
+        MarkLogicPersistentProperty property = entity != null ? entity.getPersistentProperty(order.getProperty()) : null;
+        IndexType type = IndexType.PATH;
+        String reference = "/" + order.getProperty();
+        if (property != null) {
+            if (property.getIndexType() == IndexType.PATH && StringUtils.hasText(property.getPath())) {
+                reference = property.getPath();
+            } else {
+                type = IndexType.ELEMENT;
+                reference = order.getProperty();
+            }
+        }
+
+        return catalog.hasRangeIndex(type, reference)
+                ? null
+                : String.format("sort on %s needs a range index on %s %s", order.getProperty(), type == IndexType.PATH ? "path" : "element", reference);
+    }
+
+    /**
+     * Check if a range query on the property can be resolved by a configured index.
+     */
+    boolean isRangeIndexed(MarkLogicPersistentProperty property) {
+        RangeIndex index = RangeIndex.forProperty(property);
+        return index != null && catalog.covers(index);
+    }
+
+    /**
+     * Get the collation of a string range index on the property that a prefix can be matched with, i.e. one with the
+     * codepoint collation where everything starting with "ab" sorts before "ac".  Other collations, like the root
+     * collation, can sort values that start with the prefix after it with its last character incremented.
+     *
+     * @return The collation, or null if there is no such index.
+     */
+    String getPrefixCollation(MarkLogicPersistentProperty property) {
+        RangeIndex index = RangeIndex.forProperty(property);
+        if (index == null || !"string".equals(index.getScalarType())) return null;
+
+        return catalog.contains(index.withCollation(RangeIndex.CODEPOINT_COLLATION)) ? RangeIndex.CODEPOINT_COLLATION : null;
+    }
+
+    private static MarkLogicPersistentProperty findByFieldName(MarkLogicPersistentEntity<?> entity, String name) {
+        for (MarkLogicPersistentProperty property : entity) {
+            if (name.equals(property.getFieldName())) return property;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,243 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a serialized structured query into a smaller equivalent one before it is sent to the database.  Derived
+ * queries are built up one criteria at a time, so they end up as deeply nested and/or queries, often with duplicates.
+ * The rewrite
+ * <ul>
+ *     <li>flattens and-queries inside and-queries, and or-queries inside or-queries</li>
+ *     <li>removes duplicate queries inside the same and/or query</li>
+ *     <li>merges value and range queries on the same index inside an or-query into one query with all the values, the
+ *     same as an "In" criteria creates</li>
+ *     <li>unwraps and/or queries that only contain one query</li>
+ * </ul>
+ * Range queries with different operators on the same index (i.e. from "Between") are left as they are, since a range
+ * query only has one operator.
+ */
+final class StructuredQueryOptimizer {
+
+    private static final String NS = "http://marklogic.com/appservices/search";
+
+    // JAXP factories, builders and transformers aren't thread-safe, so each thread keeps its own to reuse
+    private static final ThreadLocal<DocumentBuilder> DOCUMENTS = ThreadLocal.withInitial(() -> {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+    private static final ThreadLocal<Transformer> TRANSFORMERS = ThreadLocal.withInitial(() -> {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            return transformer;
+        } catch (TransformerConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private StructuredQueryOptimizer() {}
+
+    /**
+     * @param query The serialized structured query.
+     *
+     * @return The rewritten query, or the same query if there was nothing to rewrite.
+     */
+    static String optimize(String query) {
+        // Only boolean queries can be rewritten, so don't bother parsing anything else
+        if (query == null || !(query.contains("<and-query") || query.contains("<or-query"))) return query;
+
+        try {
+            Document document = DOCUMENTS.get().parse(new InputSource(new StringReader(query)));
+            if (!rewrite(document.getDocumentElement())) return query;
+
+            StringWriter result = new StringWriter();
+            TRANSFORMERS.get().transform(new DOMSource(document), new StreamResult(result));
+            return result.toString();
+        } catch (Exception ex) {
+            // The query is still valid as it is, it's just not as small as it could be
+            return query;
+        }
+    }
+
+    /**
+     * Rewrite the children of the element, from the bottom up.
+     *
+     * @return True if anything changed.
+     */
+    private static boolean rewrite(Element element) {
+        boolean changed = false;
+        for (Element child : children(element)) {
+            changed |= rewrite(child);
+        }
+
+        if (isBoolean(element)) {
+            changed |= flatten(element);
+            changed |= dedupe(element);
+            if ("or-query".equals(element.getLocalName())) changed |= merge(element);
+            changed |= unwrap(element);
+        }
+        return changed;
+    }
+
+    private static boolean isBoolean(Element element) {
+        return NS.equals(element.getNamespaceURI())
+                && ("and-query".equals(element.getLocalName()) || "or-query".equals(element.getLocalName()))
+                // An ordered and-query means something different than the queries it contains
+                && children(element).stream().noneMatch(child -> "ordered".equals(child.getLocalName()));
+    }
+
+    private static boolean flatten(Element element) {
+        boolean changed = false;
+        for (Element child : children(element)) {
+            if (isBoolean(child) && child.getLocalName().equals(element.getLocalName())) {
+                for (Element grandchild : children(child)) {
+                    element.insertBefore(grandchild, child);
+                }
+                element.removeChild(child);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean dedupe(Element element) {
+        boolean changed = false;
+        List<Element> kept = new ArrayList<>();
+        for (Element child : children(element)) {
+            if (kept.stream().anyMatch(child::isEqualNode)) {
+                element.removeChild(child);
+                changed = true;
+            } else {
+                kept.add(child);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Value or range queries on the same index match if any of their values match, so the values of queries that only
+     * differ by their values can all go into one.
+     */
+    private static boolean merge(Element element) {
+        boolean changed = false;
+        List<Element> kept = new ArrayList<>();
+        for (Element child : children(element)) {
+            String valueName = mergeableValue(child);
+            Element target = valueName == null ? null : kept.stream()
+                    .filter(candidate -> sameExceptValues(candidate, child, valueName))
+                    .findFirst()
+                    .orElse(null);
+
+            if (target != null) {
+                Node anchor = lastValue(target, valueName).getNextSibling();
+                for (Element value : values(child, valueName)) {
+                    target.insertBefore(value, anchor);
+                }
+                element.removeChild(child);
+                changed = true;
+            } else {
+                kept.add(child);
+            }
+        }
+        return changed;
+    }
+
+    private static String mergeableValue(Element query) {
+        if (!NS.equals(query.getNamespaceURI())) return null;
+        if ("value-query".equals(query.getLocalName())) return "text";
+        if ("range-query".equals(query.getLocalName())) {
+            // "Not equal" with multiple values doesn't mean the same thing as multiple "not equal" queries
+            for (Element child : children(query)) {
+                if ("range-operator".equals(child.getLocalName()) && "NE".equals(child.getTextContent().trim())) return null;
+            }
+            return "value";
+        }
+        return null;
+    }
+
+    private static boolean sameExceptValues(Element a, Element b, String valueName) {
+        // The type, and the collation of string range queries, have to be the same for the values to be comparable
+        if (!a.getLocalName().equals(b.getLocalName()) || !sameAttributes(a, b)) return false;
+
+        List<Element> aChildren = withoutValues(a, valueName);
+        List<Element> bChildren = withoutValues(b, valueName);
+        if (aChildren.size() != bChildren.size()) return false;
+        for (int i = 0; i < aChildren.size(); i++) {
+            if (!aChildren.get(i).isEqualNode(bChildren.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameAttributes(Element a, Element b) {
+        NamedNodeMap attributes = a.getAttributes();
+        if (attributes.getLength() != b.getAttributes().getLength()) return false;
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            Attr other = b.getAttributeNodeNS(attribute.getNamespaceURI(), attribute.getLocalName());
+            if (other == null || !attribute.getValue().equals(other.getValue())) return false;
+        }
+        return true;
+    }
+
+    private static boolean unwrap(Element element) {
+        List<Element> children = children(element);
+        Node parent = element.getParentNode();
+        if (children.size() != 1 || !(parent instanceof Element)) return false;
+
+        parent.replaceChild(children.get(0), element);
+        return true;
+    }
+
+    private static List<Element> children(Element element) {
+        List<Element> children = new ArrayList<>();
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element) children.add((Element) node);
+        }
+        return children;
+    }
+
+    private static List<Element> values(Element query, String valueName) {
+        List<Element> values = new ArrayList<>();
+        for (Element child : children(query)) {
+            if (valueName.equals(child.getLocalName())) values.add(child);
+        }
+        return values;
+    }
+
+    private static List<Element> withoutValues(Element query, String valueName) {
+        List<Element> others = new ArrayList<>();
+        for (Element child : children(query)) {
+            if (!valueName.equals(child.getLocalName())) others.add(child);
+        }
+        return others;
+    }
+
+    private static Element lastValue(Element query, String valueName) {
+        List<Element> values = values(query, valueName);
+        return values.get(values.size() - 1);
+    }
+}
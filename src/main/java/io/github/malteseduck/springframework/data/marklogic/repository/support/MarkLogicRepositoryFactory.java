@@ -19,6 +19,7 @@ import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperat
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.MarkLogicQueryMethod;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.OpticMarkLogicQuery;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.PartTreeMarkLogicQuery;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.StringMarkLogicQuery;
 import org.springframework.data.mapping.context.MappingContext;
@@ -139,7 +140,9 @@ public class MarkLogicRepositoryFactory extends RepositoryFactorySupport {
                                             NamedQueries namedQueries) {
             MarkLogicQueryMethod queryMethod = new MarkLogicQueryMethod(method, metadata, factory, mappingContext);
 
-            if (queryMethod.hasAnnotatedQuery())
+            if (queryMethod.hasOpticQuery())
+                return new OpticMarkLogicQuery(queryMethod, operations);
+            else if (queryMethod.hasAnnotatedQuery())
                 return new StringMarkLogicQuery(queryMethod, operations, EXPRESSION_PARSER, evaluationContextProvider);
             else
                 return new PartTreeMarkLogicQuery(queryMethod, operations);
@@ -6,6 +6,8 @@ import com.marklogic.client.io.Format.JSON
 import com.marklogic.client.query.StructuredQueryBuilder
 import com.marklogic.client.query.StructuredQueryDefinition
 import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog
+import io.github.malteseduck.springframework.data.marklogic.core.index.WildcardPolicy
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType.*
 import io.github.malteseduck.springframework.data.marklogic.core.query.*
@@ -139,9 +141,15 @@ open class QueryCriteriaMarkLogicExecutor<T, ID : Serializable>(
      * case-insensitive always, regardless of what case is submitted.  For a full search grammar set the qtext param
      * in the Criteria instead.
      *
+     * With index aware querying the terms are checked against the wildcard indexes of the database.  If leading
+     * wildcards can't be resolved but trailing ones can then only the start of words is matched, otherwise the
+     * configured [WildcardPolicy] decides what happens.
+     *
      * @param value The search text that may contain one or more terms
+     * @param field The name of the field being searched
      */
-    private fun terms(value: Any): List<String> {
+    private fun terms(value: Any, field: String): List<String> {
+        val catalog: IndexCatalog? = if (ops.isIndexAwareQuerying) ops.indexCatalog else null
         val stringValue: String =
             (value as? List<*>)?.joinToString(" ") ?: value.toString()
         return stringValue
@@ -151,16 +159,21 @@ open class QueryCriteriaMarkLogicExecutor<T, ID : Serializable>(
             .map {
                 when {
                     it.contains("*") -> it
+                    catalog == null || catalog.canResolveWildcard("*$it*") -> "*$it*"
+                    catalog.canResolveWildcard("$it*") -> "$it*"
                     else -> "*$it*"
                 }
             }
+            .onEach { term ->
+                if (catalog?.canResolveWildcard(term) == false) ops.wildcardPolicy.unresolvable(term, field)
+            }
     }
 
     private fun <Q : QueryCriteria<T>> words(annotation: Word, property: KProperty1<Q, *>, value: Any): StructuredQueryDefinition {
         val fieldName = if (annotation.field.isNotBlank()) annotation.field else property.name
         return wrapScope(fieldName) {
             qb.and(
-                *terms(value).map { term ->
+                *terms(value, fieldName).map { term ->
                     qb.word(element(it), null, annotation.options, annotation.weight, term)
                 }.toTypedArray()
             )
@@ -0,0 +1,115 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.support;
+
+import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.MarkLogicQueryMethod;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.QueryIndexAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.repository.core.support.RepositoryFactoryInformation;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Checks the query methods of all the repositories when the application starts, to find range queries and sorts that
+ * aren't backed by an index (see {@link QueryIndexAnalyzer}) and methods that use filtered searches.  Declare it as a
+ * bean to enable it, i.e.
+ * <pre>
+ * &#64;Bean
+ * QueryIndexVerifier queryIndexVerifier(MarkLogicOperations operations) {
+ *     QueryIndexVerifier verifier = new QueryIndexVerifier(operations);
+ *     verifier.setFailOnProblems(true);
+ *     return verifier;
+ * }
+ * </pre>
+ * The indexes are read from the database configuration through the management API unless a saved snapshot is set with
+ * {@link #setIndexCatalog(IndexCatalog)}.
+ */
+public class QueryIndexVerifier implements SmartInitializingSingleton, BeanFactoryAware {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryIndexVerifier.class);
+
+    private final MarkLogicOperations operations;
+    private ListableBeanFactory beanFactory;
+    private IndexCatalog catalog;
+    private boolean failOnProblems;
+
+    public QueryIndexVerifier(MarkLogicOperations operations) {
+        Assert.notNull(operations, "MarkLogicOperations must not be null!");
+        this.operations = operations;
+    }
+
+    /**
+     * Set the indexes to check against instead of reading them from the database.
+     */
+    public void setIndexCatalog(IndexCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Set to fail the startup of the application if any problems are found, instead of only logging them.
+     */
+    public void setFailOnProblems(boolean failOnProblems) {
+        this.failOnProblems = failOnProblems;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        Assert.isInstanceOf(ListableBeanFactory.class, beanFactory);
+        this.beanFactory = (ListableBeanFactory) beanFactory;
+    }
+
+    /**
+     * Check the specified query methods.
+     *
+     * @return The problems found, each prefixed with the entity type and method name.
+     */
+    public List<String> verify(Collection<? extends QueryMethod> methods) {
+        QueryIndexAnalyzer analyzer = new QueryIndexAnalyzer(catalog != null ? catalog : operations.getIndexCatalog());
+
+        List<String> problems = new ArrayList<>();
+        for (QueryMethod method : methods) {
+            if (!(method instanceof MarkLogicQueryMethod)) continue;
+
+            String name = method.getEntityInformation().getJavaType().getSimpleName() + " " + method.getName();
+            List<String> found;
+            try {
+                found = analyzer.analyze((MarkLogicQueryMethod) method);
+            } catch (RuntimeException ex) {
+                // The verifier only reports on the queries, it shouldn't be what keeps the application from starting
+                LOG.warn("Unable to check the indexes needed by {}: {}", name, ex.getMessage());
+                continue;
+            }
+            for (String problem : found) {
+                problems.add(name + ": " + problem);
+            }
+        }
+        return problems;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<QueryMethod> methods = new ArrayList<>();
+        for (RepositoryFactoryInformation<?, ?> information : beanFactory.getBeansOfType(RepositoryFactoryInformation.class, false, false).values()) {
+            methods.addAll(information.getQueryMethods());
+        }
+
+        List<String> problems = verify(methods);
+        if (problems.isEmpty()) {
+            LOG.info("The indexes needed by {} repository query methods are configured", methods.size());
+        } else if (failOnProblems) {
+            throw new IllegalStateException("Repository query methods need indexes that are not configured, or use filtered searches:\n  " + String.join("\n  ", problems));
+        } else {
+            problems.forEach(problem -> LOG.warn(problem));
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.query.StructuredQueryBuilder;
 import io.github.malteseduck.springframework.data.marklogic.domain.ChunkRequest;
+import io.github.malteseduck.springframework.data.marklogic.domain.GroupCounts;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetResultDto;
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetedPage;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.CombinedQueryDefinitionBuilder;
@@ -106,6 +108,44 @@ public class BasicQueryIT {
         assertThat(ops.count(qb.value(qb.jsonProperty("gender"), "male"), Person.class)).as("options type").isEqualTo(2);
     }
 
+    @Test
+    public void testAggregate() throws Exception {
+        assertThat(ops.aggregate(Person.class, "age", Aggregate.SUM).intValue()).as("sum").isEqualTo(87);
+        assertThat(ops.aggregate(Person.class, "age", Aggregate.MIN).intValue()).as("min").isEqualTo(12);
+        assertThat(ops.aggregate(Person.class, "age", Aggregate.MAX).intValue()).as("max").isEqualTo(52);
+        assertThat(ops.aggregate(qb.value(qb.jsonProperty("gender"), "male"), Person.class, "age", Aggregate.AVG).doubleValue())
+                .as("avg of query").isEqualTo(17.5);
+    }
+
+    @Test
+    public void testGroupCount() throws Exception {
+        GroupCounts<Object> byGender = ops.groupCount(qb.and(), Person.class, "gender");
+        assertThat(byGender.keySet()).as("most frequent first").containsExactly("male", "female");
+        assertThat(byGender.getCount("male")).isEqualTo(2);
+        assertThat(byGender.getCount("female")).isEqualTo(1);
+
+        GroupCounts<Object> byGenderAndAge = ops.groupCount(qb.value(qb.jsonProperty("gender"), "male"), Person.class, "gender", "age");
+        assertThat(byGenderAndAge)
+                .containsEntry(asList("male", 12), 1L)
+                .containsEntry(asList("male", 23), 1L)
+                .hasSize(2);
+    }
+
+    @Test
+    public void testDistinctValues() throws Exception {
+        List<String> names = ops.distinctValues(Person.class, "name", null, 10);
+        assertThat(names).as("all").containsExactly("Bobby", "George", "Jane");
+
+        names = ops.distinctValues(Person.class, "name", "Ja", 10);
+        assertThat(names).as("prefix").containsExactly("Jane");
+
+        names = ops.distinctValues(qb.value(qb.jsonProperty("gender"), "male"), Person.class, "name", null, 1, 10);
+        assertThat(names).as("query and offset").containsExactly("George");
+
+        List<Integer> ages = ops.distinctValues(Person.class, "age", null, 2);
+        assertThat(ages).as("limited").containsExactly(12, 23);
+    }
+
     @Test
     public void testQueryByValue() {
         List<Person> people = ops.search(
@@ -243,4 +283,22 @@ public class BasicQueryIT {
         assertThat(categories).extracting(Category::getTitle).as("title of returned category")
             .containsExactly("Test Category");
     }
+
+    @Test
+    public void testRowsFromGeneratedTemplate() {
+        ops.installTemplate(Person.class);
+        assertThat(ops.installTemplate(Person.class)).as("unchanged template is not reinstalled").isFalse();
+
+        List<Person> males = ops.rows(op -> op.fromView("entities", "Person")
+                .where(op.eq(op.col("gender"), op.xs.string("male")))
+                .orderBy(op.col("name")), Person.class);
+        assertThat(males).extracting(Person::getName).containsExactly("Bobby", "George");
+        assertThat(males).extracting(Person::getAge).containsExactly(23, 12);
+
+        RowColumns ages = ops.columns(op -> op.fromView("entities", "Person")
+                .groupBy(op.col("gender"), op.sum("total", "age"))
+                .orderBy(op.col("gender")));
+        assertThat(ages.getValues("gender")).containsExactly("female", "male");
+        assertThat(ages.getLongs("total")).containsExactly(52, 35);
+    }
 }
@@ -0,0 +1,78 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.io.BytesHandle;
+import com.marklogic.client.io.DocumentMetadataHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.OutputStreamSender;
+import com.marklogic.client.io.marker.ContentHandle;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.DocumentDescriptor;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentHashesTest {
+
+    private static final byte[] CONTENT = "{\"name\":\"Bob\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testSameContentSameHash() {
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withCollections("a", "b")))
+                .isEqualTo(DocumentHashes.hash(CONTENT.clone(), new DocumentMetadataHandle().withCollections("b", "a")));
+    }
+
+    @Test
+    public void testContentChangesHash() {
+        byte[] changed = "{\"name\":\"George\"}".getBytes(StandardCharsets.UTF_8);
+        assertThat(DocumentHashes.hash(CONTENT, null))
+                .isNotEqualTo(DocumentHashes.hash(changed, null));
+    }
+
+    @Test
+    public void testCollectionsChangeHash() {
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withCollections("a")))
+                .isNotEqualTo(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withCollections("a", "b")));
+    }
+
+    @Test
+    public void testOtherMetadataChangesHash() {
+        String hash = DocumentHashes.hash(CONTENT, new DocumentMetadataHandle());
+
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withQuality(5))).isNotEqualTo(hash);
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle()
+                .withPermission("rest-reader", DocumentMetadataHandle.Capability.READ))).isNotEqualTo(hash);
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withMetadataValue("source", "import")))
+                .isNotEqualTo(hash);
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withProperty("reviewed", true)))
+                .isNotEqualTo(hash);
+    }
+
+    @Test
+    public void testStoredHashDoesNotChangeHash() {
+        assertThat(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle().withMetadataValue(DocumentHashes.HASH_KEY, "old")))
+                .isEqualTo(DocumentHashes.hash(CONTENT, new DocumentMetadataHandle()));
+    }
+
+    @Test
+    public void testReadsContentThatCanBeWrittenAgain() {
+        DocumentDescriptor doc = new DocumentDescriptor();
+        doc.setContent(new BytesHandle(CONTENT));
+        assertThat(DocumentHashes.content(doc)).isEqualTo(CONTENT);
+
+        StreamedContent streamed = new StreamedContent();
+        streamed.setResendable(true);
+        doc.setContent(streamed);
+        assertThat(DocumentHashes.content(doc)).isEqualTo(CONTENT);
+
+        // Content that can only be sent once is left for the write
+        doc.setContent(new StreamedContent());
+        assertThat(DocumentHashes.content(doc)).isNull();
+    }
+
+    static class StreamedContent extends OutputStreamHandle implements ContentHandle<OutputStreamSender> {
+        StreamedContent() {
+            super(out -> out.write(CONTENT));
+        }
+    }
+}
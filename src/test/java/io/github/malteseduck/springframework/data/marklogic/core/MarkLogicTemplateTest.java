@@ -0,0 +1,202 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.Transaction;
+import com.marklogic.client.document.DocumentPage;
+import com.marklogic.client.document.DocumentRecord;
+import com.marklogic.client.document.GenericDocumentManager;
+import com.marklogic.client.io.InputStreamHandle;
+import com.marklogic.client.io.StringHandle;
+import com.marklogic.client.query.QueryDefinition;
+import com.marklogic.client.query.QueryManager;
+import com.marklogic.client.query.StructuredQueryBuilder;
+import io.github.malteseduck.springframework.data.marklogic.core.convert.JacksonMarkLogicConverter;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.CombinedQueryDefinition;
+import io.github.malteseduck.springframework.data.marklogic.repository.query.CombinedQueryDefinitionBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.github.malteseduck.springframework.data.marklogic.repository.query.QueryTestUtils.client;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MarkLogicTemplateTest {
+
+    private MarkLogicTemplate template;
+    private List<DocumentRecord> records;
+
+    @Before
+    public void setUp() {
+        JacksonMarkLogicConverter converter = new JacksonMarkLogicConverter(new MarkLogicMappingContext());
+        converter.afterPropertiesSet();
+        template = new MarkLogicTemplate(client(), converter);
+    }
+
+    @Test
+    public void testDecodesLargePagesInParallelInOrder() {
+        template.setParallelDecodeThreshold(10);
+        template.setDecodePool(new ForkJoinPool(4));
+
+        List<Person> people = template.toEntityList(Person.class, page(200));
+        assertThat(people).hasSize(200);
+        for (int i = 0; i < people.size(); i++) {
+            assertThat(people.get(i).getName()).isEqualTo("Person " + i);
+            // The ids are still back-filled from the URIs
+            assertThat(people.get(i).getId()).isEqualTo(String.valueOf(i));
+        }
+    }
+
+    @Test
+    public void testDecodesSmallPagesOnCallingThread() {
+        template.setParallelDecodeThreshold(10);
+
+        List<Person> people = template.toEntityList(Person.class, page(5));
+        assertThat(people.stream().map(Person::getName).collect(Collectors.toList()))
+                .containsExactly("Person 0", "Person 1", "Person 2", "Person 3", "Person 4");
+    }
+
+    @Test
+    public void testConvertsStreamedDocumentsOnlyWhenReached() {
+        DocumentPage page = page(100);
+
+        try (Stream<Person> people = template.toEntityStream(Person.class, page)) {
+            assertThat(people.limit(2).map(Person::getId)).containsExactly("0", "1");
+        }
+        // Only the documents the stream got to were read
+        verify(records.get(1)).getContent(any(InputStreamHandle.class));
+        verify(records.get(2), never()).getContent(any(InputStreamHandle.class));
+        verify(page).close();
+    }
+
+    @Test
+    public void testCountLeavesQueryUnchanged() {
+        DatabaseClient client = spy(client());
+        GenericDocumentManager manager = mock(GenericDocumentManager.class);
+        doReturn(manager).when(client).newDocumentManager();
+        DocumentPage page = page(0);
+        when(manager.search(any(QueryDefinition.class), anyLong(), ArgumentMatchers.<Transaction>isNull())).thenReturn(page);
+        JacksonMarkLogicConverter converter = new JacksonMarkLogicConverter(new MarkLogicMappingContext());
+        converter.afterPropertiesSet();
+        MarkLogicTemplate template = new MarkLogicTemplate(client, converter);
+
+        CombinedQueryDefinition query = nameQuery();
+        String serialized = query.serialize();
+
+        template.count(query, Person.class);
+        assertThat(query.serialize()).isEqualTo(serialized);
+
+        // So a search with the same query still calculates relevance
+        template.search(query, Person.class);
+        ArgumentCaptor<QueryDefinition> searched = ArgumentCaptor.forClass(QueryDefinition.class);
+        verify(manager, times(2)).search(searched.capture(), anyLong(), ArgumentMatchers.<Transaction>isNull());
+        assertThat(((CombinedQueryDefinition) searched.getAllValues().get(0)).serialize()).contains("score-zero");
+        assertThat(((CombinedQueryDefinition) searched.getAllValues().get(1)).serialize()).doesNotContain("score-zero");
+    }
+
+    @Test
+    public void testAggregateLeavesQueryUnchanged() {
+        List<String> sent = new ArrayList<>();
+        MarkLogicTemplate template = lexiconTemplate(sent);
+        CombinedQueryDefinition query = nameQuery();
+        String serialized = query.serialize();
+
+        assertThatThrownBy(() -> template.aggregate(query, Person.class, "age", Aggregate.SUM));
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0)).contains("<values name='aggregate'>");
+        assertThat(query.serialize()).isEqualTo(serialized);
+    }
+
+    @Test
+    public void testGroupCountLeavesQueryUnchanged() {
+        List<String> sent = new ArrayList<>();
+        MarkLogicTemplate template = lexiconTemplate(sent);
+        CombinedQueryDefinition query = nameQuery();
+        String serialized = query.serialize();
+
+        assertThatThrownBy(() -> template.groupCount(query, Person.class, "gender", "occupation"));
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0)).contains("<tuples name='group'>");
+        assertThat(query.serialize()).isEqualTo(serialized);
+    }
+
+    @Test
+    public void testDistinctValuesLeavesQueryUnchanged() {
+        List<String> sent = new ArrayList<>();
+        MarkLogicTemplate template = lexiconTemplate(sent);
+        CombinedQueryDefinition query = nameQuery();
+        String serialized = query.serialize();
+
+        assertThatThrownBy(() -> template.distinctValues(query, Person.class, "name", "Bo", 10));
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0)).contains("<values name='distinct'>");
+        assertThat(query.serialize()).isEqualTo(serialized);
+    }
+
+    /**
+     * A template whose lexicon calls stop once the query with the values options is built, since the result handles
+     * can't be created without a server.
+     *
+     * @param sent Collects the serialized queries the lexicon calls would send.
+     */
+    private MarkLogicTemplate lexiconTemplate(List<String> sent) {
+        DatabaseClient client = spy(client());
+        QueryManager qryMgr = mock(QueryManager.class);
+        doReturn(qryMgr).when(client).newQueryManager();
+        when(qryMgr.newRawCombinedQueryDefinition(any(StringHandle.class))).thenAnswer(invocation -> {
+            sent.add(invocation.<StringHandle>getArgument(0).get());
+            throw new UnsupportedOperationException("Not connected");
+        });
+
+        JacksonMarkLogicConverter converter = new JacksonMarkLogicConverter(new MarkLogicMappingContext());
+        converter.afterPropertiesSet();
+        return new MarkLogicTemplate(client, converter);
+    }
+
+    private static CombinedQueryDefinition nameQuery() {
+        StructuredQueryBuilder qb = new StructuredQueryBuilder();
+        return CombinedQueryDefinitionBuilder.combine(qb.value(qb.jsonProperty("name"), "Bob"));
+    }
+
+    private DocumentPage page(int size) {
+        records = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            records.add(record("/Person/" + i + ".json", "{\"name\":\"Person " + i + "\"}"));
+        }
+
+        DocumentPage page = mock(DocumentPage.class);
+        when(page.size()).thenReturn((long) size);
+        when(page.iterator()).thenAnswer(invocation -> records.iterator());
+        return page;
+    }
+
+    private static DocumentRecord record(String uri, String content) {
+        DocumentRecord record = mock(DocumentRecord.class);
+        when(record.getUri()).thenReturn(uri);
+        when(record.getContent(any(InputStreamHandle.class))).thenAnswer(invocation -> {
+            InputStreamHandle handle = invocation.getArgument(0);
+            handle.set(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+            return handle;
+        });
+        return record;
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+public class PersonSummary {
+
+    private final String name;
+    private final int age;
+
+    public PersonSummary(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.query.StructuredQueryBuilder;
+import com.marklogic.client.query.StructuredQueryBuilder.Operator;
+import com.marklogic.client.query.StructuredQueryDefinition;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.RangeIndex;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RangeOptionsTest {
+
+    private final StructuredQueryBuilder qb = new StructuredQueryBuilder();
+    private final RangeOptions options = new RangeOptions(new MarkLogicMappingContext());
+    private final IndexCatalog codepoint = new IndexCatalog(Collections.singleton(
+            RangeIndex.path("string", "/name", RangeIndex.CODEPOINT_COLLATION)));
+
+    @Test
+    public void testMatchesPrefixEndingInLetterWithCodepointIndex() {
+        assertThat(options.startsWith(Person.class, "name", "Liz", codepoint).serialize())
+                .isEqualTo(prefixRange("Liz", "Li{").serialize());
+    }
+
+    @Test
+    public void testMatchesPrefixEndingInDigitWithCodepointIndex() {
+        assertThat(options.startsWith(Person.class, "name", "Agent 9", codepoint).serialize())
+                .isEqualTo(prefixRange("Agent 9", "Agent :").serialize());
+    }
+
+    @Test
+    public void testDoesNotMatchPrefixWithoutCodepointIndex() throws Exception {
+        // In the root collation "Li{" sorts before "Liz", so the range would be empty
+        IndexCatalog root = IndexCatalog.fromResource(new ClassPathResource("database-properties.json"));
+        assertThat(options.startsWith(Person.class, "name", "Liz", root)).isNull();
+        assertThat(options.startsWith(Person.class, "name", "Agent 9", root)).isNull();
+        assertThat(options.startsWith(Person.class, "name", "Liz", null)).isNull();
+    }
+
+    @Test
+    public void testDoesNotMatchPrefixEndingInLastCharacter() {
+        assertThat(options.startsWith(Person.class, "name", "Li\uFFFF", codepoint)).isNull();
+    }
+
+    private StructuredQueryDefinition prefixRange(String lower, String upper) {
+        return qb.and(
+                qb.range(qb.pathIndex("/name"), "xs:string", RangeIndex.CODEPOINT_COLLATION, Operator.GE, lower),
+                qb.range(qb.pathIndex("/name"), "xs:string", RangeIndex.CODEPOINT_COLLATION, Operator.LT, upper));
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import com.marklogic.client.document.DocumentPage;
+import com.marklogic.client.document.DocumentRecord;
+import com.marklogic.client.io.Format;
+import com.marklogic.client.io.InputStreamHandle;
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RawSearchResponseTest {
+
+    @Test
+    public void testWritesDocumentsAsJsonArray() throws IOException {
+        DocumentPage page = page(
+                record("/Person/1.json", Format.JSON, "{\"name\":\"Bob\"}"),
+                record("/Person/2.json", Format.JSON, "{\"name\":\"Bubba\"}"));
+
+        assertThat(write(new RawSearchResponse(page, RawFormat.JSON_ARRAY)))
+                .isEqualTo("[{\"name\":\"Bob\"},{\"name\":\"Bubba\"}]");
+        verify(page).close();
+    }
+
+    @Test
+    public void testWritesEachDocumentOnOneLine() throws IOException {
+        DocumentPage page = page(
+                record("/Person/1.json", Format.JSON, "{\n  \"name\" : \"Bob\"\r\n}"),
+                record("/Person/2.json", Format.JSON, "{\"name\":\"Bubba\"}"));
+
+        assertThat(write(new RawSearchResponse(page, RawFormat.NDJSON)))
+                .isEqualTo("{   \"name\" : \"Bob\"  }\n{\"name\":\"Bubba\"}\n");
+    }
+
+    @Test
+    public void testPutsPageInformationInHeaders() {
+        DocumentPage page = page(record("/Person/1.json", Format.JSON, "{}"));
+        when(page.getTotalSize()).thenReturn(42L);
+        when(page.getStart()).thenReturn(21L);
+        when(page.size()).thenReturn(1L);
+
+        HttpHeaders headers = new RawSearchResponse(page, RawFormat.NDJSON).getHeaders();
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_TYPE)).isEqualTo("application/x-ndjson");
+        assertThat(headers.getFirst(RawSearchResponse.TOTAL_COUNT_HEADER)).isEqualTo("42");
+        assertThat(headers.getFirst(RawSearchResponse.PAGE_START_HEADER)).isEqualTo("20");
+        assertThat(headers.getFirst(RawSearchResponse.PAGE_SIZE_HEADER)).isEqualTo("1");
+    }
+
+    @Test
+    public void testRejectsXmlDocuments() {
+        DocumentPage page = page(record("/PersonXml/1.xml", Format.XML, "<person/>"));
+
+        assertThatThrownBy(() -> write(new RawSearchResponse(page, RawFormat.JSON_ARRAY)))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        verify(page).close();
+    }
+
+    private static String write(RawSearchResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static DocumentPage page(DocumentRecord... records) {
+        List<DocumentRecord> list = Arrays.asList(records);
+        DocumentPage page = mock(DocumentPage.class);
+        when(page.iterator()).thenAnswer(invocation -> list.iterator());
+        return page;
+    }
+
+    private static DocumentRecord record(String uri, Format format, String content) {
+        DocumentRecord record = mock(DocumentRecord.class);
+        when(record.getUri()).thenReturn(uri);
+        when(record.getFormat()).thenReturn(format);
+        when(record.getContent(any(InputStreamHandle.class))).thenAnswer(invocation -> {
+            InputStreamHandle handle = invocation.getArgument(0);
+            handle.set(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+            return handle;
+        });
+        return record;
+    }
+}
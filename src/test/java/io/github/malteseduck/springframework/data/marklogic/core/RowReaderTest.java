@@ -0,0 +1,86 @@
+package io.github.malteseduck.springframework.data.marklogic.core;
+
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RowReaderTest {
+
+    private final RowReader reader = new RowReader();
+
+    public static class PersonRow {
+        public String name;
+        public int age;
+        public Map<String, Object> details;
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.replace('\'', '"').getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadRowsWithQualifiedColumnNames() throws IOException {
+        List<PersonRow> rows = reader.readRows(json(
+                "{'columns':[{'name':'test.Person.name','type':'xs:string'},{'name':'test.Person.age','type':'xs:int'}," +
+                        "{'name':'details'}],'rows':[" +
+                        "{'test.Person.name':'Bobby','test.Person.age':23,'details':{'a.b':1}}," +
+                        "{'test.Person.name':'Jane','test.Person.age':52,'details':null}]}"
+        ), PersonRow.class);
+
+        assertThat(rows).extracting(row -> row.name).containsExactly("Bobby", "Jane");
+        assertThat(rows).extracting(row -> row.age).containsExactly(23, 52);
+        // Names inside of values are not column names so are left alone
+        assertThat(rows.get(0).details).containsOnlyKeys("a.b");
+    }
+
+    @Test
+    public void testReadRowsWithNoResults() throws IOException {
+        assertThat(reader.readRows(null, PersonRow.class)).isEmpty();
+        assertThat(reader.readRows(json("{'columns':[{'name':'name'}],'rows':[]}"), PersonRow.class)).isEmpty();
+    }
+
+    @Test
+    public void testReadColumnsIntoPrimitiveArrays() throws IOException {
+        RowColumns columns = reader.readColumns(json(
+                "{'columns':[{'name':'test.Person.name','type':'xs:string'},{'name':'test.Person.age','type':'xs:int'}," +
+                        "{'name':'average','type':'xs:double'},{'name':'active','type':'xs:boolean'}]," +
+                        "'rows':[['Bobby',23,1.5,true],['George',null,2.5,false],['Jane',52,null,true]]}"
+        ));
+
+        assertThat(columns.size()).isEqualTo(3);
+        assertThat(columns.getColumnNames()).containsExactly("test.Person.name", "test.Person.age", "average", "active");
+        assertThat(columns.getValues("name")).containsExactly("Bobby", "George", "Jane");
+        assertThat(columns.getLongs("test.Person.age")).containsExactly(23, 0, 52);
+        assertThat(columns.isNull("age", 1)).isTrue();
+        assertThat(columns.get("age", 1)).isNull();
+        assertThat(columns.get("age", 2)).isEqualTo(52L);
+        assertThat(columns.getDoubles("average")).containsExactly(1.5, 2.5, 0);
+        assertThat(columns.getBooleans("active")).containsExactly(true, false, true);
+        assertThat(columns.getType("age")).isEqualTo("xs:int");
+
+        assertThatThrownBy(() -> columns.getLongs("name")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> columns.getValues("missing")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReadColumnsGrowsPastInitialCapacity() throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) rows.append(',');
+            rows.append('[').append(i).append(']');
+        }
+        RowColumns columns = reader.readColumns(json("{'columns':[{'name':'n','type':'xs:long'}],'rows':[" + rows + "]}"));
+
+        assertThat(columns.size()).isEqualTo(100);
+        assertThat(columns.getLongs("n")).hasSize(100).endsWith(99);
+    }
+}
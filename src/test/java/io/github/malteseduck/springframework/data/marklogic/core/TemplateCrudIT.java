@@ -1,6 +1,7 @@
 package io.github.malteseduck.springframework.data.marklogic.core;
 
 import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.document.JSONDocumentManager;
 import com.marklogic.client.document.ServerTransform;
 import com.marklogic.client.query.StructuredQueryBuilder;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.Document;
@@ -32,11 +33,13 @@ import static org.assertj.core.api.Assertions.catchThrowable;
 })
 public class TemplateCrudIT {
 
+    private DatabaseClient client;
     private MarkLogicOperations ops;
     private StructuredQueryBuilder qb = new StructuredQueryBuilder();
 
     @Autowired
     public void setClient(DatabaseClient client) {
+        this.client = client;
         ops = new MarkLogicTemplate(client);
     }
 
@@ -141,6 +144,49 @@ public class TemplateCrudIT {
         assertThat(found.getName()).isEqualTo("Override Master Write");
     }
 
+    @Test
+    public void testIncrement() {
+        Person bob = new Person("bob");
+        bob.setAge(20);
+        Person fred = new Person("fred");
+        fred.setAge(30);
+
+        ops.write(asList(bob, fred));
+
+        ops.increment(bob.getId(), Person.class, "age", 1);
+        assertThat(ops.read(bob.getId(), Person.class).getAge()).as("single").isEqualTo(21);
+
+        ops.increment(asList(bob.getId(), fred.getId()), Person.class, "age", -5);
+        assertThat(ops.read(asList(bob.getId(), fred.getId()), Person.class))
+                .extracting(Person::getAge)
+                .as("bulk")
+                .containsExactlyInAnyOrder(16, 25);
+    }
+
+    @Test
+    public void testSkipUnchangedWrites() {
+        MarkLogicTemplate template = (MarkLogicTemplate) ops;
+        template.setWriteMode(WriteMode.SKIP_UNCHANGED);
+        try {
+            Person bob = new Person("bob");
+            bob.setAge(20);
+            ops.write(bob);
+
+            // Change the stored document without changing the hash so we can tell if the next write was skipped
+            JSONDocumentManager manager = client.newJSONDocumentManager();
+            manager.patch("/" + bob.getId() + ".json", manager.newPatchBuilder().replaceValue("/age", 99).build());
+
+            ops.write(bob);
+            assertThat(ops.read(bob.getId(), Person.class).getAge()).as("unchanged skipped").isEqualTo(99);
+
+            bob.setAge(21);
+            ops.write(bob);
+            assertThat(ops.read(bob.getId(), Person.class).getAge()).as("changed written").isEqualTo(21);
+        } finally {
+            template.setWriteMode(WriteMode.ALWAYS);
+        }
+    }
+
     @Test
     public void testBatchRead() {
         Person bob = new Person("bob");
@@ -0,0 +1,125 @@
+package io.github.malteseduck.springframework.data.marklogic.core.convert;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.marklogic.client.document.DocumentRecord;
+import com.marklogic.client.io.BytesHandle;
+import com.marklogic.client.io.Format;
+import com.marklogic.client.io.InputStreamHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import io.github.malteseduck.springframework.data.marklogic.core.Person;
+import io.github.malteseduck.springframework.data.marklogic.core.PersonXml;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.DocumentDescriptor;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JacksonMarkLogicConverterTest {
+
+    private JacksonMarkLogicConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new JacksonMarkLogicConverter(new MarkLogicMappingContext());
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    public void testWritesDocumentWithFormatOfEntity() {
+        Person bob = new Person("Bob");
+        DocumentDescriptor doc = new DocumentDescriptor();
+        converter.write(bob, doc);
+
+        assertThat(doc.getUri()).isEqualTo("/Person/" + bob.getId() + ".json");
+        assertThat(doc.getContent()).isInstanceOf(BytesHandle.class);
+        assertThat(((BytesHandle) doc.getContent()).getFormat()).isEqualTo(Format.JSON);
+        assertThat(new String(((BytesHandle) doc.getContent()).get(), StandardCharsets.UTF_8)).contains("\"name\":\"Bob\"");
+
+        DocumentDescriptor xml = new DocumentDescriptor();
+        converter.write(new PersonXml("Bob"), xml);
+        assertThat(((BytesHandle) xml.getContent()).getFormat()).isEqualTo(Format.XML);
+    }
+
+    @Test
+    public void testStreamsContentWhenSent() throws IOException {
+        converter.setStreamingWrites(true);
+        Person bob = new Person("Bob");
+        DocumentDescriptor doc = new DocumentDescriptor();
+        converter.write(bob, doc);
+
+        assertThat(doc.getContent()).isInstanceOf(OutputStreamHandle.class);
+        OutputStreamHandle handle = (OutputStreamHandle) doc.getContent();
+        assertThat(handle.getFormat()).isEqualTo(Format.JSON);
+        // The client can retry the request since the entity is serialized again
+        assertThat(handle.isResendable()).isTrue();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handle.get().write(out);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).contains("\"name\":\"Bob\"");
+        // Writing it again gives the same bytes, so they can be buffered for computing content hashes
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        handle.get().write(again);
+        assertThat(again.toByteArray()).isEqualTo(out.toByteArray());
+    }
+
+    @Test
+    public void testReadsFromContentStream() {
+        DocumentDescriptor doc = new DocumentDescriptor(record("/Person/1.json", "{\"id\":\"ignored\",\"name\":\"Bob\",\"age\":23}"));
+
+        Person person = converter.read(Person.class, doc);
+        assertThat(person.getName()).isEqualTo("Bob");
+        assertThat(person.getAge()).isEqualTo(23);
+        // The id comes from the URI of the document
+        assertThat(person.getId()).isEqualTo("1");
+    }
+
+    @Test
+    public void testReadsXmlFromContentStream() {
+        DocumentDescriptor doc = new DocumentDescriptor(record("/PersonXml/1.xml", "<person><name>Bob</name><age>23</age></person>"));
+
+        PersonXml person = converter.read(PersonXml.class, doc);
+        assertThat(person.getName()).isEqualTo("Bob");
+        assertThat(person.getAge()).isEqualTo(23);
+        assertThat(person.getId()).isEqualTo("1");
+    }
+
+    @Test
+    public void testAccessesIdWithoutGetterOrSetter() {
+        Tag tag = new Tag();
+        tag.id = "java";
+        DocumentDescriptor doc = new DocumentDescriptor();
+        converter.write(tag, doc);
+        assertThat(doc.getUri()).isEqualTo("/Tag/java.json");
+
+        assertThat(converter.read(Tag.class, new DocumentDescriptor(record("/Tag/kotlin.json", "{}"))).id)
+                .isEqualTo("kotlin");
+    }
+
+    public static class Tag {
+        @Id
+        @JsonIgnore
+        String id;
+        public String label;
+    }
+
+    private static DocumentRecord record(String uri, String content) {
+        DocumentRecord record = mock(DocumentRecord.class);
+        when(record.getUri()).thenReturn(uri);
+        when(record.getContent(any(InputStreamHandle.class))).thenAnswer(invocation -> {
+            InputStreamHandle handle = invocation.getArgument(0);
+            handle.set(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+            return handle;
+        });
+        return record;
+    }
+}
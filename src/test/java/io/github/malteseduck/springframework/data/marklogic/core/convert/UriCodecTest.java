@@ -0,0 +1,38 @@
+package io.github.malteseduck.springframework.data.marklogic.core.convert;
+
+import com.marklogic.client.io.Format;
+import org.junit.Test;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UriCodecTest {
+
+    private static final DefaultConversionService CONVERSIONS = new DefaultConversionService();
+
+    @Test
+    public void testCreatesUriFromBaseUriAndFormat() {
+        assertThat(new UriCodec("/Person/", Format.JSON).toUri("bob")).isEqualTo("/Person/bob.json");
+        assertThat(new UriCodec("/people/", Format.XML).toUri(42L)).isEqualTo("/people/42.xml");
+    }
+
+    @Test
+    public void testParsesIdOfType() {
+        UriCodec codec = new UriCodec("/Person/", Format.JSON);
+        UUID uuid = UUID.randomUUID();
+
+        assertThat(codec.toId("/Person/bob.json", String.class, CONVERSIONS)).isEqualTo("bob");
+        assertThat(codec.toId("/Person/42.json", long.class, CONVERSIONS)).isEqualTo(42L);
+        assertThat(codec.toId("/Person/42.json", Integer.class, CONVERSIONS)).isEqualTo(42);
+        assertThat(codec.toId("/Person/" + uuid + ".json", UUID.class, CONVERSIONS)).isEqualTo(uuid);
+    }
+
+    @Test
+    public void testRemovesExtensionOfOtherFormat() {
+        assertThat(new UriCodec("/Person/", Format.JSON).toId("/Person/bob.xml", String.class, CONVERSIONS)).isEqualTo("bob");
+        // Dots in the id itself are kept
+        assertThat(new UriCodec("/Person/", Format.JSON).toId("/Person/bob.smith.json", String.class, CONVERSIONS)).isEqualTo("bob.smith");
+    }
+}
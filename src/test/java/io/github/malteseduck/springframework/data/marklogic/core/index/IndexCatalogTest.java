@@ -0,0 +1,70 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexCatalogTest {
+
+    static IndexCatalog catalog() throws Exception {
+        JsonNode properties = new ObjectMapper().readTree(new ClassPathResource("database-properties.json").getInputStream());
+        return IndexCatalog.fromProperties(properties);
+    }
+
+    @Test
+    public void testReadsPathAndElementIndexes() throws Exception {
+        IndexCatalog catalog = catalog();
+
+        assertThat(catalog.contains(RangeIndex.path("string", "/name"))).isTrue();
+        assertThat(catalog.contains(RangeIndex.path("int", "/age"))).isTrue();
+        assertThat(catalog.contains(RangeIndex.path("dateTime", "/modified"))).isTrue();
+        assertThat(catalog.contains(RangeIndex.element("string", "", "name"))).isTrue();
+        assertThat(catalog.contains(RangeIndex.element("dateTime", null, "birthtime"))).isTrue();
+        assertThat(catalog.contains(RangeIndex.element("string", null, "description"))).isFalse();
+    }
+
+    @Test
+    public void testIgnoresCollationOfNonStringIndexes() throws Exception {
+        // The "age" element index is configured with a collation, which doesn't apply to ints
+        assertThat(catalog().contains(RangeIndex.element("int", null, "age"))).isTrue();
+    }
+
+    @Test
+    public void testStringIndexesWithDifferentCollationsAreDifferent() {
+        assertThat(RangeIndex.path("string", "/name", "http://marklogic.com/collation/codepoint"))
+                .isNotEqualTo(RangeIndex.path("string", "/name"));
+        assertThat(RangeIndex.path("string", "/name", ""))
+                .isEqualTo(RangeIndex.path("string", "/name"));
+        // Without a collation string indexes use the root collation, like queries that don't specify one
+        assertThat(RangeIndex.path("string", "/name").getCollation()).isEqualTo("http://marklogic.com/collation/");
+    }
+
+    @Test
+    public void testSplitsMultipleLocalNames() {
+        ObjectMapper mapper = new ObjectMapper();
+        IndexCatalog catalog = IndexCatalog.fromProperties(mapper.createObjectNode().set("range-element-index",
+                mapper.createArrayNode().add(RangeIndex.element("int", null, "age count").toJson())));
+
+        assertThat(catalog.getRangeIndexes())
+                .containsExactly(RangeIndex.element("int", null, "age"), RangeIndex.element("int", null, "count"));
+    }
+
+    @Test
+    public void testResolvesWildcardsFromConfiguredIndexes() throws Exception {
+        // Only "three character searches" is enabled
+        IndexCatalog catalog = catalog();
+        assertThat(catalog.canResolveWildcard("bob")).isTrue();
+        assertThat(catalog.canResolveWildcard("*bob*")).isTrue();
+        assertThat(catalog.canResolveWildcard("bo*")).isFalse();
+
+        IndexCatalog trailing = new IndexCatalog(catalog.getRangeIndexes(), false, true, false);
+        assertThat(trailing.canResolveWildcard("bo*")).isTrue();
+        assertThat(trailing.canResolveWildcard("*bob")).isFalse();
+
+        IndexCatalog lexicon = new IndexCatalog(catalog.getRangeIndexes(), false, false, true);
+        assertThat(lexicon.canResolveWildcard("*b?b*")).isTrue();
+    }
+}
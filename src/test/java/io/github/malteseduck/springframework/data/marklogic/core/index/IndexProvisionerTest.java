@@ -0,0 +1,101 @@
+package io.github.malteseduck.springframework.data.marklogic.core.index;
+
+import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
+import io.github.malteseduck.springframework.data.marklogic.core.Person;
+import io.github.malteseduck.springframework.data.marklogic.core.convert.JacksonMarkLogicConverter;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.IndexType;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.Indexed;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class IndexProvisionerTest {
+
+    private MarkLogicOperations operations;
+
+    private final RangeIndex description = RangeIndex.element("string", null, "description");
+    private final RangeIndex birthtime = RangeIndex.element("dateTime", null, "birthtime");
+
+    @Before
+    public void setUp() throws Exception {
+        MarkLogicMappingContext context = new MarkLogicMappingContext();
+        context.getRequiredPersistentEntity(Person.class);
+
+        operations = mock(MarkLogicOperations.class);
+        when(operations.getConverter()).thenReturn(new JacksonMarkLogicConverter(context));
+        when(operations.getIndexCatalog()).thenReturn(IndexCatalogTest.catalog());
+    }
+
+    @Test
+    public void testFindsIndexesOfAnnotatedProperties() {
+        assertThat(new IndexProvisioner(operations).getRequiredIndexes())
+                .containsKeys(description, birthtime)
+                .containsEntry(description, Collections.singleton("Person.description"));
+    }
+
+    @Test
+    public void testIndexesNestedPropertiesUnderTheirPath() {
+        MarkLogicMappingContext context = new MarkLogicMappingContext();
+        context.getRequiredPersistentEntity(Owner.class);
+        when(operations.getConverter()).thenReturn(new JacksonMarkLogicConverter(context));
+
+        assertThat(new IndexProvisioner(operations).getRequiredIndexes())
+                .containsOnly(
+                        entry(RangeIndex.path("string", "/name"), Collections.singleton("Owner.name")),
+                        entry(RangeIndex.path("string", "/animals/name"), Collections.singleton("Owner.animals.name")),
+                        entry(RangeIndex.element("string", null, "species"), Collections.singleton("Owner.animals.species")));
+    }
+
+    static class Owner {
+        @Indexed
+        String name;
+        List<Animal> animals;
+    }
+
+    static class Animal {
+        @Indexed
+        String name;
+        @Indexed(type = IndexType.ELEMENT)
+        String species;
+    }
+
+    @Test
+    public void testDryRunOnlyReportsMissingIndexes() {
+        IndexReport report = new IndexProvisioner(operations).provision(true);
+
+        assertThat(report.getMissing()).containsOnlyKeys(description);
+        assertThat(report.getExisting()).containsOnly(birthtime);
+        assertThat(report.isApplied()).isFalse();
+        assertThat(report.isComplete()).isFalse();
+        verify(operations, never()).addRangeIndexes(any());
+    }
+
+    @Test
+    public void testAddsOnlyMissingIndexes() {
+        IndexReport report = new IndexProvisioner(operations).provision(false);
+
+        verify(operations).addRangeIndexes(Collections.singleton(description));
+        assertThat(report.isApplied()).isTrue();
+        assertThat(report.isComplete()).isTrue();
+    }
+
+    @Test
+    public void testNothingToAddWhenAllIndexesExist() {
+        when(operations.getIndexCatalog()).thenReturn(new IndexCatalog(new HashSet<>(Arrays.asList(description, birthtime))));
+
+        IndexReport report = new IndexProvisioner(operations).provision(false);
+
+        verify(operations, never()).addRangeIndexes(any());
+        assertThat(report.isComplete()).isTrue();
+    }
+}
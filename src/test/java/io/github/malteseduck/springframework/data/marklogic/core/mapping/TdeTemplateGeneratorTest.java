@@ -0,0 +1,85 @@
+package io.github.malteseduck.springframework.data.marklogic.core.mapping;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.malteseduck.springframework.data.marklogic.core.Person;
+import io.github.malteseduck.springframework.data.marklogic.core.PersonXml;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TdeTemplateGeneratorTest {
+
+    private final MarkLogicMappingContext context = new MarkLogicMappingContext();
+    private final TdeTemplateGenerator generator = new TdeTemplateGenerator();
+
+    @Document(schema = "test", type = "Reading")
+    static class Reading {
+        @Id
+        private String id;
+        @JsonProperty("temp")
+        private double temperature;
+        @Indexed(path = "/location/name")
+        private String location;
+        private Long count;
+        private Boolean valid;
+        private List<String> tags;
+    }
+
+    @Document(uri = "/test/notes/", typeStrategy = TypePersistenceStrategy.URI)
+    static class Note {
+        @Id
+        private String id;
+        private String text;
+    }
+
+    private static List<String> columns(JsonNode template, String field) {
+        List<String> values = new ArrayList<>();
+        template.at("/template/rows/0/columns").forEach(column -> values.add(column.get(field).asText()));
+        return values;
+    }
+
+    @Test
+    public void testGeneratesViewForJsonEntity() {
+        MarkLogicPersistentEntity<?> entity = context.getRequiredPersistentEntity(Person.class);
+        JsonNode template = generator.generate(entity);
+
+        assertThat(template.at("/template/context").asText()).isEqualTo("/");
+        assertThat(template.at("/template/collections/0").asText()).isEqualTo("Person");
+        assertThat(template.at("/template/rows/0/schemaName").asText()).isEqualTo("entities");
+        assertThat(template.at("/template/rows/0/viewName").asText()).isEqualTo("Person");
+        // Lists and nested objects can't be columns, nor can types without a range index type
+        assertThat(columns(template, "name"))
+                .contains("id", "name", "age", "gender", "occupation", "description", "birthtime", "modified")
+                .doesNotContain("active", "rankings", "hobbies", "pets");
+        assertThat(columns(template, "scalarType")).contains("string", "int", "dateTime");
+        assertThat(generator.getUri(entity)).isEqualTo("/tde/entities/Person.json");
+    }
+
+    @Test
+    public void testUsesDocumentAndIndexedConfiguration() {
+        MarkLogicPersistentEntity<?> entity = context.getRequiredPersistentEntity(Reading.class);
+        JsonNode template = generator.generate(entity);
+
+        assertThat(template.at("/template/rows/0/schemaName").asText()).isEqualTo("test");
+        assertThat(template.at("/template/rows/0/viewName").asText()).isEqualTo("Reading");
+        assertThat(columns(template, "name")).containsExactlyInAnyOrder("id", "temp", "location", "count");
+        assertThat(columns(template, "val")).containsExactlyInAnyOrder("id", "temp", "location/name", "count");
+        assertThat(columns(template, "scalarType")).containsExactlyInAnyOrder("string", "double", "string", "long");
+        assertThat(generator.getUri(entity)).isEqualTo("/tde/test/Reading.json");
+    }
+
+    @Test
+    public void testScopesXmlAndUriEntities() {
+        JsonNode xml = generator.generate(context.getRequiredPersistentEntity(PersonXml.class));
+        assertThat(xml.at("/template/context").asText()).isEqualTo("/*");
+
+        JsonNode uri = generator.generate(context.getRequiredPersistentEntity(Note.class));
+        assertThat(uri.at("/template/collections").isMissingNode()).isTrue();
+        assertThat(uri.at("/template/directories/0").asText()).isEqualTo("/test/notes/");
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.malteseduck.springframework.data.marklogic.domain;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+public class GroupCountsTest {
+
+    @Test
+    public void testKeepsOrderOfGroups() {
+        GroupCounts<String> counts = GroupCounts.<String>builder(1)
+                .add("male", 3)
+                .add("female", 2)
+                .add("other", 1)
+                .build();
+
+        assertThat(counts.keySet()).containsExactly("male", "female", "other");
+        assertThat(counts.values()).containsExactly(3L, 2L, 1L);
+        assertThat(counts.getTotal()).isEqualTo(6);
+    }
+
+    @Test
+    public void testLookup() {
+        GroupCounts.Builder<Object> builder = GroupCounts.builder();
+        for (int i = 0; i < 20; i++) {
+            builder.add(asList("group", i), i);
+        }
+        GroupCounts<Object> counts = builder.build();
+
+        assertThat(counts.getCount(asList("group", 15))).as("found").isEqualTo(15);
+        assertThat(counts.getCount(asList("group", 25))).as("missing").isEqualTo(0);
+        assertThat(counts.get(asList("group", 25))).as("missing boxed").isNull();
+        assertThat(counts).containsEntry(asList("group", 3), 3L);
+    }
+
+    @Test
+    public void testAddsToExistingGroup() {
+        GroupCounts<String> counts = GroupCounts.<String>builder()
+                .add("male", 3)
+                .add("male", 2)
+                .build();
+
+        assertThat(counts).hasSize(1).containsEntry("male", 5L);
+    }
+
+    @Test
+    public void testCannotChangeBuiltCounts() {
+        GroupCounts.Builder<String> builder = GroupCounts.<String>builder().add("male", 3);
+        GroupCounts<String> counts = builder.build();
+
+        assertThatThrownBy(() -> builder.add("female", 2)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> counts.put("female", 2L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> counts.entrySet().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(counts).containsOnly(entry("male", 3L));
+    }
+}
@@ -16,8 +16,10 @@
 package io.github.malteseduck.springframework.data.marklogic.repository;
 
 import io.github.malteseduck.springframework.data.marklogic.core.Person;
+import io.github.malteseduck.springframework.data.marklogic.core.PersonSummary;
 import io.github.malteseduck.springframework.data.marklogic.core.PersonView;
 import io.github.malteseduck.springframework.data.marklogic.core.Pet;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
 import io.github.malteseduck.springframework.data.marklogic.domain.facets.FacetedPage;
 import io.github.malteseduck.springframework.data.marklogic.repository.query.QueryType;
 import org.springframework.data.domain.Page;
@@ -28,6 +30,7 @@ import org.springframework.data.repository.query.Param;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 public interface PersonRepository extends MarkLogicRepository<Person, String> {
@@ -38,6 +41,24 @@ public interface PersonRepository extends MarkLogicRepository<Person, String> {
 
     List<PersonView> queryByName(String name);
 
+    List<PersonSummary> readByGenderOrderByNameAsc(String gender);
+
+    <T> List<T> findByOccupationOrderByNameAsc(String occupation, Class<T> type);
+
+    int sumAgeByGender(String gender);
+
+    Double avgAge();
+
+    Map<String, Long> countGroupByGender();
+
+    Map<List<Object>, Long> countByGenderGroupByGenderAndOccupation(String gender);
+
+    List<String> findDistinctOccupationByGender(String gender);
+
+    List<String> findDistinctTop2NameByGender(String gender);
+
+    List<Person> findDistinctNameByAge(int age);
+
     List<Person> findByGenderOrderByAge(String gender);
 
     List<Person> findByNameStartsWith(String prefix);
@@ -92,6 +113,10 @@ public interface PersonRepository extends MarkLogicRepository<Person, String> {
 
     List<Person> findByNameNotIn(Collection<String> names);
 
+    List<Person> findByIdIn(Collection<String> ids);
+
+    List<Person> findByIdNotIn(String... ids);
+
     List<Person> findByNameAndAge(String name, int age);
 
     List<Person> findByNameAndAgeAllIgnoreCase(String name, int age);
@@ -212,4 +237,15 @@ public interface PersonRepository extends MarkLogicRepository<Person, String> {
 
     Stream<Person> readAllByAgeNotNull();
 
+    // ====== Optic queries ======
+
+    @OpticQuery("op.fromView('entities', 'Person').where(op.eq(op.col('gender'), op.param('gender'))).select(['name', 'age'])")
+    List<Person> findRowsByGender(@Param("gender") String gender, Pageable pageable);
+
+    @OpticQuery("op.fromView('entities', 'Person').where(op.ge(op.col('age'), op.param('age'))).select(['name', 'age'])")
+    Person findRowByAge(@Param("age") int age, Sort sort);
+
+    @OpticQuery("op.fromView('entities', 'Person').groupBy(op.col('occupation'), op.avg('age', 'age'))")
+    RowColumns averageAgeByOccupation();
+
 }
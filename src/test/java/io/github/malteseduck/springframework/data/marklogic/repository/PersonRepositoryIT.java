@@ -29,6 +29,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.util.Arrays.asList;
@@ -173,13 +174,56 @@ public class PersonRepositoryIT {
     }
 
     @Test
-    @Ignore("projects not enabled until queries limit values returned")
     public void testFindsPersonsByNameReturningOnyName() throws Exception {
         List<PersonView> people = repository.queryByName("Jane");
         assertThat(people).extracting(PersonView::getName)
                 .contains("Jane");
     }
 
+    @Test
+    public void testFindsPersonsReturningDtoProjection() throws Exception {
+        List<PersonSummary> people = repository.readByGenderOrderByNameAsc("female");
+        assertThat(people).extracting(PersonSummary::getName)
+                .containsExactly("Andrea", "Jane", "Jenny");
+        assertThat(people).extracting(PersonSummary::getAge)
+                .containsExactly(andrea.getAge(), jane.getAge(), jenny.getAge());
+    }
+
+    @Test
+    public void testFindsPersonsReturningDynamicProjection() throws Exception {
+        List<PersonView> people = repository.findByOccupationOrderByNameAsc("dentist", PersonView.class);
+        assertThat(people).extracting(PersonView::getName)
+                .containsExactly("Bobby", "Jenny");
+    }
+
+    @Test
+    public void testAggregatesDerivedFromMethodName() throws Exception {
+        assertThat(repository.sumAgeByGender("female")).isEqualTo(andrea.getAge() + jane.getAge() + jenny.getAge());
+        assertThat(repository.avgAge()).isEqualTo(
+                asList(andrea, bobby, george, henry, jane, jenny).stream().mapToInt(Person::getAge).average().getAsDouble());
+    }
+
+    @Test
+    public void testGroupCountsDerivedFromMethodName() throws Exception {
+        Map<String, Long> byGender = repository.countGroupByGender();
+        assertThat(byGender).containsEntry("female", 3L).containsEntry("male", 3L).hasSize(2);
+
+        Map<List<Object>, Long> byOccupation = repository.countByGenderGroupByGenderAndOccupation("female");
+        assertThat(byOccupation)
+                .containsEntry(asList("female", "dentist"), 1L)
+                .containsEntry(asList("female", "doctor"), 1L)
+                .containsEntry(asList("female", "food prep"), 1L)
+                .hasSize(3);
+    }
+
+    @Test
+    public void testFindsDistinctValuesOfProperty() throws Exception {
+        assertThat(repository.findDistinctOccupationByGender("male"))
+                .containsExactly("construction", "dentist", "engineer");
+        assertThat(repository.findDistinctTop2NameByGender("female"))
+                .containsExactly("Andrea", "Jane");
+    }
+
     @Test
     public void testFindsPersonsByNameOrderedByAge() throws Exception {
         List<Person> people = repository.findByGenderOrderByAge("female");
@@ -59,11 +59,34 @@ public class CombinedQueryTest {
     public void testCanDoOrQuery() throws Exception {
         String serialized = combine(
                 qb.value(qb.element("name"), "Bob"))
-                .or(qb.value(qb.element("name"), "Fred"))
+                .or(qb.value(qb.element("age"), 23))
                 .serialize();
         assertThat(serialized)
                 .contains("<or-query>")
                 .contains("<element ns=\"\" name=\"name\"/><text>Bob</text>")
-                .contains("<element ns=\"\" name=\"name\"/><text>Fred</text>");
+                .contains("<element ns=\"\" name=\"age\"/><text>23</text>");
+    }
+
+    @Test
+    public void testOrQueryOnSameIndexBecomesOneQuery() throws Exception {
+        String serialized = combine(
+                qb.value(qb.element("name"), "Bob"))
+                .or(qb.value(qb.element("name"), "Fred"))
+                .serialize();
+        assertThat(serialized)
+                .doesNotContain("<or-query>")
+                .containsPattern("<text>(Bob|Fred)</text><text>(Bob|Fred)</text></value-query>");
+    }
+
+    @Test
+    public void testDefaultSearchOptionsDontReplaceOptionsOfTheSameKind() throws Exception {
+        CombinedQueryDefinition query = combine(qb.and())
+                .defaultSearchOptions("filtered")
+                .defaultSearchOptions("score-zero")
+                .defaultSearchOptions("unfiltered", "score-random", "faceted");
+        assertThat(query.serialize())
+                .contains("<options><search-option>filtered</search-option><search-option>score-zero</search-option><search-option>faceted</search-option></options>");
+        assertThat(query.isSorted()).isFalse();
+        assertThat(query.sort(Sort.by("name")).isSorted()).isTrue();
     }
 }
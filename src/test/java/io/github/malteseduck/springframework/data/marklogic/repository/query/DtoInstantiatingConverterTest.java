@@ -0,0 +1,28 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import io.github.malteseduck.springframework.data.marklogic.core.Person;
+import io.github.malteseduck.springframework.data.marklogic.core.PersonSummary;
+import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
+import org.junit.Test;
+import org.springframework.data.mapping.model.EntityInstantiators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DtoInstantiatingConverterTest {
+
+    @Test
+    public void testCopiesValuesWithoutRegisteringDto() {
+        MarkLogicMappingContext context = new MarkLogicMappingContext();
+        Person bob = new Person("Bob");
+        bob.setAge(23);
+
+        PersonSummary summary = (PersonSummary) new DtoInstantiatingConverter(PersonSummary.class, context, new EntityInstantiators())
+                .convert(bob);
+
+        assertThat(summary.getName()).isEqualTo("Bob");
+        assertThat(summary.getAge()).isEqualTo(23);
+        // Only stored entities belong in the mapping context
+        assertThat(context.hasPersistentEntityFor(PersonSummary.class)).isFalse();
+        assertThat(context.hasPersistentEntityFor(Person.class)).isTrue();
+    }
+}
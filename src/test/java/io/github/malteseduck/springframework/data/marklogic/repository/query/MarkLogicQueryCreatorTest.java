@@ -28,10 +28,17 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import io.github.malteseduck.springframework.data.marklogic.core.*;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.RangeIndex;
+import io.github.malteseduck.springframework.data.marklogic.core.index.WildcardPolicy;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static com.marklogic.client.query.StructuredQueryBuilder.Operator;
@@ -67,6 +74,51 @@ public class MarkLogicQueryCreatorTest {
                 ).serialize());
     }
 
+    @Test
+    public void testAggregateQueryUsesCriteriaAfterProperty() throws Exception {
+        StructuredQueryDefinition query = QueryTestUtils.tree(
+                QueryTestUtils.queryMethod(PersonRepository.class, "sumAgeByGender", String.class)
+        ).createQuery(getAccessor("female"));
+        assertThat(query.serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.value(qb.jsonProperty("gender"), null, EXACT, 1.0, "female")
+                ).serialize());
+    }
+
+    @Test
+    public void testGroupCountQueryUsesCriteriaBeforeGroup() throws Exception {
+        StructuredQueryDefinition query = QueryTestUtils.tree(
+                QueryTestUtils.queryMethod(PersonRepository.class, "countByGenderGroupByGenderAndOccupation", String.class)
+        ).createQuery(getAccessor("female"));
+        assertThat(query.serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.value(qb.jsonProperty("gender"), null, EXACT, 1.0, "female")
+                ).serialize());
+    }
+
+    @Test
+    public void testDistinctValuesQueryUsesCriteria() throws Exception {
+        StructuredQueryDefinition query = QueryTestUtils.tree(
+                QueryTestUtils.queryMethod(PersonRepository.class, "findDistinctOccupationByGender", String.class)
+        ).createQuery(getAccessor("male"));
+        assertThat(query.serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.value(qb.jsonProperty("gender"), null, EXACT, 1.0, "male")
+                ).serialize());
+    }
+
+    @Test
+    public void testDistinctValuesOnlyWhenReturningPropertyValues() throws Exception {
+        assertThat(QueryTestUtils.tree(
+                QueryTestUtils.queryMethod(PersonRepository.class, "findDistinctOccupationByGender", String.class)
+        ).getValuesExecution(getAccessor("male"))).isInstanceOf(MarkLogicQueryExecution.DistinctValuesExecution.class);
+
+        // Returns entities, so "Name" just describes the finder
+        assertThat(QueryTestUtils.tree(
+                QueryTestUtils.queryMethod(PersonRepository.class, "findDistinctNameByAge", int.class)
+        ).getValuesExecution(getAccessor(23))).isNull();
+    }
+
     @Test
     public void testAndQuery() throws Exception {
         StructuredQueryDefinition query = QueryTestUtils.creator(
@@ -598,4 +650,109 @@ public class MarkLogicQueryCreatorTest {
                                 .serialize()
                 );
     }
+
+    @Test
+    public void testIndexAwareEqualityUsesRangeIndex() throws Exception {
+        IndexCatalog catalog = IndexCatalog.fromResource(new ClassPathResource("database-properties.json"));
+
+        StructuredQueryDefinition query = indexAwareCreator(catalog,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameAndAge", String.class, int.class),
+                "Bubba", 23
+        ).createQuery();
+        assertThat(query.serialize())
+                .isEqualTo(
+                        CombinedQueryDefinitionBuilder.combine(
+                                qb.and(
+                                        qb.range(qb.pathIndex("/name"), "xs:string", (String[]) null, Operator.EQ, "Bubba"),
+                                        qb.range(qb.pathIndex("/age"), "xs:int", (String[]) null, Operator.EQ, 23)
+                                )
+                        ).serialize()
+                );
+    }
+
+    @Test
+    public void testIndexAwareKeepsValueQueriesRangeIndexCantResolve() throws Exception {
+        IndexCatalog catalog = IndexCatalog.fromResource(new ClassPathResource("database-properties.json"));
+
+        // Not indexed
+        assertThat(indexAwareCreator(new IndexCatalog(Collections.emptySet()),
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByName", String.class), "Bubba").createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(qb.value(qb.jsonProperty("name"), null, EXACT, 1.0, "Bubba")).serialize());
+        // Range queries can't ignore case
+        assertThat(indexAwareCreator(catalog,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameIgnoreCase", String.class), "bobby").createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(qb.value(qb.jsonProperty("name"), null, new String[]{ "case-insensitive"}, 1.0, "bobby")).serialize());
+        // The path index of a nested property doesn't apply inside the container
+        assertThat(indexAwareCreator(catalog,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByPetsName", String.class), "Fluffy").createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.containerQuery(qb.jsonProperty("pets"), qb.value(qb.jsonProperty("name"), null, EXACT, 1.0, "Fluffy"))).serialize());
+    }
+
+    @Test
+    public void testIndexAwarePrefixUsesRangeIndexWithoutWildcardIndexes() throws Exception {
+        IndexCatalog indexes = IndexCatalog.fromResource(new ClassPathResource("database-properties.json"));
+        IndexCatalog codepointIndex = new IndexCatalog(Collections.singleton(
+                RangeIndex.path("string", "/name", RangeIndex.CODEPOINT_COLLATION)));
+        String[] codepoint = new String[]{"collation=http://marklogic.com/collation/codepoint"};
+
+        assertThat(indexAwareCreator(codepointIndex,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameStartsWith", String.class), "Bo").createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(qb.and(
+                        qb.range(qb.pathIndex("/name"), "xs:string", codepoint, Operator.GE, "Bo"),
+                        qb.range(qb.pathIndex("/name"), "xs:string", codepoint, Operator.LT, "Bp"))).serialize());
+        // With the wildcard indexes the word query can be resolved
+        assertThat(indexAwareCreator(indexes,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameStartsWith", String.class), "Bob").createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.word(qb.jsonProperty("name"), null, new String[]{"wildcarded"}, 1.0, "Bob*")).serialize());
+    }
+
+    @Test
+    public void testIndexAwarePrefixNeedsCodepointCollation() throws Exception {
+        // The index on name has the root collation, which doesn't keep everything starting with "Bo" before "Bp"
+        IndexCatalog noWildcards = new IndexCatalog(
+                IndexCatalog.fromResource(new ClassPathResource("database-properties.json")).getRangeIndexes());
+
+        assertThat(indexAwareCreator(noWildcards,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameStartsWith", String.class), "Bo").createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.word(qb.jsonProperty("name"), null, new String[]{"wildcarded"}, 1.0, "Bo*")).serialize());
+
+        expectation.expect(InvalidDataAccessApiUsageException.class);
+        indexAwareCreator(noWildcards, WildcardPolicy.REJECT,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameStartsWith", String.class), "Bo").createQuery();
+    }
+
+    @Test
+    public void testIndexAwareRejectsUnresolvableWildcards() throws Exception {
+        IndexCatalog noWildcards = new IndexCatalog(Collections.emptySet());
+
+        expectation.expect(InvalidDataAccessApiUsageException.class);
+        indexAwareCreator(noWildcards, WildcardPolicy.REJECT,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByNameEndsWith", String.class), "by").createQuery();
+    }
+
+    @Test
+    public void testLargeIdInListUsesDocumentQuery() throws Exception {
+        MarkLogicTemplate template = new MarkLogicTemplate(client(), new JacksonMarkLogicConverter(new MarkLogicMappingContext()));
+        template.setDocumentQueryThreshold(2);
+
+        assertThat(creator(template,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByIdIn", Collection.class),
+                asList("1", "2", "3")).createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.document("/Person/1.json", "/Person/2.json", "/Person/3.json")).serialize());
+        assertThat(creator(template,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByIdNotIn", String[].class),
+                (Object) new String[]{"1", "2", "3"}).createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.not(qb.document("/Person/1.json", "/Person/2.json", "/Person/3.json"))).serialize());
+        // Short lists still match the id values
+        assertThat(creator(template,
+                QueryTestUtils.queryMethod(PersonRepository.class, "findByIdIn", Collection.class),
+                asList("1", "2")).createQuery().serialize())
+                .isEqualTo(CombinedQueryDefinitionBuilder.combine(
+                        qb.value(qb.jsonProperty("id"), null, EXACT, 1.0, "1", "2")).serialize());
+    }
 }
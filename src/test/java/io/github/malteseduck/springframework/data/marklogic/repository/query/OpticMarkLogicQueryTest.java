@@ -0,0 +1,113 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import com.marklogic.client.expression.PlanBuilder;
+import com.marklogic.client.io.StringHandle;
+import com.marklogic.client.row.RawQueryDSLPlan;
+import io.github.malteseduck.springframework.data.marklogic.core.ClientCallback;
+import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicOperations;
+import io.github.malteseduck.springframework.data.marklogic.core.Person;
+import io.github.malteseduck.springframework.data.marklogic.domain.RowColumns;
+import io.github.malteseduck.springframework.data.marklogic.repository.OpticQuery;
+import io.github.malteseduck.springframework.data.marklogic.repository.PersonRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.Repository;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static io.github.malteseduck.springframework.data.marklogic.repository.query.QueryTestUtils.client;
+import static io.github.malteseduck.springframework.data.marklogic.repository.query.QueryTestUtils.queryMethod;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OpticMarkLogicQueryTest {
+
+    private MarkLogicOperations operations;
+
+    @Before
+    public void setUp() {
+        operations = mock(MarkLogicOperations.class);
+        when(operations.executeWithClient(any()))
+                .thenAnswer(invocation -> ((ClientCallback<?>) invocation.getArgument(0)).doWithClient(client(), null));
+    }
+
+    interface PagedRowRepository extends Repository<Person, String> {
+        @OpticQuery("op.fromView('entities', 'Person').select(['name', 'age'])")
+        Page<Person> findRowPage(Pageable pageable);
+    }
+
+    private static String dsl(PlanBuilder.Plan plan) {
+        return ((StringHandle) ((RawQueryDSLPlan) plan).getHandle()).get();
+    }
+
+    @Test
+    public void testRejectsPageReturnType() {
+        assertThatThrownBy(() -> new OpticMarkLogicQuery(queryMethod(PagedRowRepository.class, "findRowPage", Pageable.class), operations))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("findRowPage");
+    }
+
+    @Test
+    public void testAppliesPageableToPlan() throws Exception {
+        Person bobby = new Person();
+        when(operations.rows(any(PlanBuilder.Plan.class), eq(Person.class))).thenReturn(Collections.singletonList(bobby));
+
+        Object result = new OpticMarkLogicQuery(queryMethod(PersonRepository.class, "findRowsByGender", String.class, Pageable.class), operations)
+                .execute(new Object[] { "male", PageRequest.of(1, 2, Sort.by("name")) });
+
+        ArgumentCaptor<PlanBuilder.Plan> plan = ArgumentCaptor.forClass(PlanBuilder.Plan.class);
+        verify(operations).rows(plan.capture(), eq(Person.class));
+        assertThat(dsl(plan.getValue())).isEqualTo(
+                "op.fromView('entities', 'Person').where(op.eq(op.col('gender'), op.param('gender'))).select(['name', 'age'])" +
+                ".orderBy([op.asc('name')]).offsetLimit(2, 2)");
+        assertThat(result).isEqualTo(Collections.singletonList(bobby));
+    }
+
+    @Test
+    public void testReturnsFirstRowForSingleResult() throws Exception {
+        Person jane = new Person();
+        when(operations.rows(any(PlanBuilder.Plan.class), eq(Person.class))).thenReturn(Arrays.asList(jane, new Person()));
+
+        Object result = new OpticMarkLogicQuery(queryMethod(PersonRepository.class, "findRowByAge", int.class, Sort.class), operations)
+                .execute(new Object[] { 30, Sort.by(Sort.Direction.DESC, "age") });
+
+        assertThat(result).isSameAs(jane);
+    }
+
+    @Test
+    public void testReturnsColumns() throws Exception {
+        RowColumns columns = new RowColumns(Collections.emptyList(), Collections.emptyList(), new Object[0], null, 0);
+        when(operations.columns(any(PlanBuilder.Plan.class))).thenReturn(columns);
+
+        Object result = new OpticMarkLogicQuery(queryMethod(PersonRepository.class, "averageAgeByOccupation"), operations)
+                .execute(new Object[0]);
+
+        assertThat(result).isSameAs(columns);
+        verify(operations, never()).rows(any(PlanBuilder.Plan.class), any());
+    }
+
+    @Test
+    public void testRejectsSortThatIsNotAColumnName() {
+        assertThat(OpticMarkLogicQuery.orderBy(Sort.by(Sort.Order.asc("name"), Sort.Order.desc("test.Person.age"))))
+                .isEqualTo(".orderBy([op.asc('name'), op.desc('test.Person.age')])");
+        assertThatThrownBy(() -> OpticMarkLogicQuery.orderBy(Sort.by("name'), op.asc('x")))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    @Test
+    public void testNullParameterCannotBeBound() {
+        assertThatThrownBy(() -> new OpticMarkLogicQuery(queryMethod(PersonRepository.class, "findRowsByGender", String.class, Pageable.class), operations)
+                .execute(new Object[] { null, Pageable.unpaged() }))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+}
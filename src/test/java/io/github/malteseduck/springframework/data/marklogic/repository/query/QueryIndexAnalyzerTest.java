@@ -0,0 +1,76 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.repository.PersonRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import static io.github.malteseduck.springframework.data.marklogic.repository.query.QueryTestUtils.queryMethod;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryIndexAnalyzerTest {
+
+    private QueryIndexAnalyzer analyzer;
+    private final QueryIndexAnalyzer noIndexes = new QueryIndexAnalyzer(new IndexCatalog(Collections.emptySet()));
+
+    @Before
+    public void setUp() throws Exception {
+        analyzer = new QueryIndexAnalyzer(IndexCatalog.fromResource(new ClassPathResource("database-properties.json")));
+    }
+
+    @Test
+    public void testRangeQueriesResolvedByConfiguredIndexes() throws Exception {
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "findByAgeBetween", int.class, int.class))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "findByBirthtimeGreaterThan", Instant.class))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "findByGender", String.class))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "findByGenderOrderByAge", String.class))).isEmpty();
+    }
+
+    @Test
+    public void testFlagsRangeQueriesWithoutIndex() throws Exception {
+        assertThat(noIndexes.analyze(queryMethod(PersonRepository.class, "findByAgeGreaterThanEqual", int.class)))
+                .containsExactly("range query on age needs a range index on path /age (int)");
+        assertThat(noIndexes.analyze(queryMethod(PersonRepository.class, "findByBirthtimeGreaterThan", Instant.class)))
+                .containsExactly("range query on birthtime needs a range index on element birthtime (dateTime)");
+        // Value queries don't need range indexes unless the method asks for range queries
+        assertThat(noIndexes.analyze(queryMethod(PersonRepository.class, "findByName", String.class))).isEmpty();
+        assertThat(noIndexes.analyze(queryMethod(PersonRepository.class, "findByGender", String.class)))
+                .containsExactly("range query on gender needs a range index on path /gender (string, http://marklogic.com/collation/)");
+    }
+
+    @Test
+    public void testAnalyzesCriteriaOfAggregatesAndGroupCounts() throws Exception {
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "sumAgeByGender", String.class))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "avgAge"))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "countGroupByGender"))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "countByGenderGroupByGenderAndOccupation", String.class))).isEmpty();
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "findDistinctOccupationByGender", String.class))).isEmpty();
+    }
+
+    @Test
+    public void testFlagsSortsWithoutIndex() throws Exception {
+        assertThat(noIndexes.analyze(queryMethod(PersonRepository.class, "findAllByOrderByNameAsc")))
+                .containsExactly("sort on name needs a range index on path /name");
+    }
+
+    @Test
+    public void testFlagsQueryByExampleRanges() throws Exception {
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "qbeFindByComplicated", String.class))).isEmpty();
+        assertThat(noIndexes.analyze(queryMethod(PersonRepository.class, "qbeFindByComplicated", String.class)))
+                .containsExactly(
+                        "$ge on birthtime needs an element range index on birthtime",
+                        "$le on birthtime needs an element range index on birthtime");
+    }
+
+    @Test
+    public void testFlagsFilteredSearches() throws Exception {
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "findByAgeExists")))
+                .containsExactly("uses a filtered search");
+        assertThat(analyzer.analyze(queryMethod(PersonRepository.class, "qbeFindBobby")))
+                .containsExactly("uses a filtered search");
+    }
+}
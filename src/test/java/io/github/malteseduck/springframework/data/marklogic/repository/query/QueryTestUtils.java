@@ -13,6 +13,8 @@ import com.marklogic.client.io.StringHandle;
 import com.marklogic.client.query.StructuredQueryDefinition;
 import io.github.malteseduck.springframework.data.marklogic.core.MarkLogicTemplate;
 import io.github.malteseduck.springframework.data.marklogic.core.convert.JacksonMarkLogicConverter;
+import io.github.malteseduck.springframework.data.marklogic.core.index.IndexCatalog;
+import io.github.malteseduck.springframework.data.marklogic.core.index.WildcardPolicy;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicMappingContext;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentEntity;
 import io.github.malteseduck.springframework.data.marklogic.core.mapping.MarkLogicPersistentProperty;
@@ -151,4 +153,23 @@ public class QueryTestUtils {
         PartTree tree = new PartTree(method.getName(), method.getEntityInformation().getJavaType());
         return new MarkLogicQueryCreator(tree, getAccessor(parameters), new MarkLogicTemplate(client(), new JacksonMarkLogicConverter(context)), context, method);
     }
+
+    public static MarkLogicQueryCreator creator(MarkLogicTemplate template, MarkLogicQueryMethod method, Object... parameters) {
+        PartTree tree = new PartTree(method.getName(), method.getEntityInformation().getJavaType());
+        return new MarkLogicQueryCreator(tree, getAccessor(parameters), template, template.getConverter().getMappingContext(), method);
+    }
+
+    public static MarkLogicQueryCreator indexAwareCreator(IndexCatalog catalog, MarkLogicQueryMethod method, Object... parameters) {
+        return indexAwareCreator(catalog, WildcardPolicy.WARN, method, parameters);
+    }
+
+    public static MarkLogicQueryCreator indexAwareCreator(IndexCatalog catalog, WildcardPolicy policy, MarkLogicQueryMethod method, Object... parameters) {
+        MarkLogicMappingContext context = new MarkLogicMappingContext();
+        MarkLogicTemplate template = new MarkLogicTemplate(client(), new JacksonMarkLogicConverter(context));
+        template.setIndexCatalog(catalog);
+        template.setIndexAwareQuerying(true);
+        template.setWildcardPolicy(policy);
+        PartTree tree = new PartTree(method.getName(), method.getEntityInformation().getJavaType());
+        return new MarkLogicQueryCreator(tree, getAccessor(parameters), template, context, method);
+    }
 }
@@ -135,6 +135,22 @@ public class StringMarkLogicQueryTest {
 				.isEqualTo("<search xmlns=\"http://marklogic.com/appservices/search\"><q:qbe xmlns:q=\"http://marklogic.com/appservices/querybyexample\"><q:query xmlns=\"\"><name>Bubba</name></q:query></q:qbe></search>");
 	}
 
+	@Test
+	public void testConvertsOperatorsAndArraysToXML() throws Exception {
+		assertThat(QbeXmlWriter.write("{ $or: [ { name: 'Bubba' }, { age: { $gt: 20 } } ], tags: ['a', 'b & c'] }"))
+				.isEqualTo("<q:qbe xmlns:q=\"http://marklogic.com/appservices/querybyexample\"><q:query xmlns=\"\">" +
+						"<q:or><q:and><name>Bubba</name></q:and><q:and><age><q:gt>20</q:gt></age></q:and></q:or>" +
+						"<tags>a</tags><tags>b &amp; c</tags></q:query></q:qbe>");
+	}
+
+	@Test
+	public void testKeepsPropertiesOfOperatorCriteriaTogether() throws Exception {
+		assertThat(QbeXmlWriter.write("{ $or: [ { name: 'Bubba', gender: 'male' }, { age: 20 } ] }"))
+				.isEqualTo("<q:qbe xmlns:q=\"http://marklogic.com/appservices/querybyexample\"><q:query xmlns=\"\">" +
+						"<q:or><q:and><name>Bubba</name><gender>male</gender></q:and><q:and><age>20</age></q:and></q:or>" +
+						"</q:query></q:qbe>");
+	}
+
 	@Test
 	public void testBindsSimplePropertyAlreadyQuotedCorrectly() throws Exception {
 		StructuredQueryDefinition query = stringQuery(
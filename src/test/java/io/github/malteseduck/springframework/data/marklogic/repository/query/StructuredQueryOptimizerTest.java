@@ -0,0 +1,80 @@
+package io.github.malteseduck.springframework.data.marklogic.repository.query;
+
+import com.marklogic.client.query.StructuredQueryBuilder;
+import com.marklogic.client.query.StructuredQueryBuilder.Operator;
+import com.marklogic.client.query.StructuredQueryDefinition;
+import org.junit.Test;
+
+import static io.github.malteseduck.springframework.data.marklogic.repository.query.StructuredQueryOptimizer.optimize;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StructuredQueryOptimizerTest {
+
+    private final StructuredQueryBuilder qb = new StructuredQueryBuilder();
+
+    private final StructuredQueryDefinition bob = qb.value(qb.jsonProperty("name"), "Bob");
+    private final StructuredQueryDefinition fred = qb.value(qb.jsonProperty("name"), "Fred");
+    private final StructuredQueryDefinition male = qb.value(qb.jsonProperty("gender"), "male");
+    private final StructuredQueryDefinition adult = qb.range(qb.pathIndex("/age"), "xs:int", Operator.GE, 18);
+    private final StructuredQueryDefinition young = qb.range(qb.pathIndex("/age"), "xs:int", Operator.LE, 30);
+
+    @Test
+    public void testFlattensNestedBooleanQueries() {
+        assertThat(optimize(qb.and(qb.and(qb.and(bob, male), adult), young).serialize()))
+                .isEqualTo(qb.and(bob, male, adult, young).serialize());
+        assertThat(optimize(qb.or(qb.or(bob, male), adult).serialize()))
+                .isEqualTo(qb.or(bob, male, adult).serialize());
+        // Different kinds of boolean queries can't be flattened into each other
+        assertThat(optimize(qb.and(qb.or(bob, male), adult).serialize()))
+                .isEqualTo(qb.and(qb.or(bob, male), adult).serialize());
+    }
+
+    @Test
+    public void testRemovesDuplicatesAndUnwrapsSingleQueries() {
+        assertThat(optimize(qb.and(qb.and(bob, male), bob).serialize()))
+                .isEqualTo(qb.and(bob, male).serialize());
+        assertThat(optimize(qb.and(qb.not(qb.and(male)), bob, bob).serialize()))
+                .isEqualTo(qb.and(qb.not(male), bob).serialize());
+    }
+
+    @Test
+    public void testMergesValuesOnSameIndex() {
+        assertThat(optimize(qb.or(qb.or(bob, male), fred).serialize()))
+                .isEqualTo(qb.or(qb.value(qb.jsonProperty("name"), "Bob", "Fred"), male).serialize());
+        assertThat(optimize(qb.or(
+                qb.range(qb.pathIndex("/age"), "xs:int", Operator.EQ, 18),
+                qb.range(qb.pathIndex("/age"), "xs:int", Operator.EQ, 21)).serialize()))
+                .isEqualTo(qb.range(qb.pathIndex("/age"), "xs:int", Operator.EQ, 18, 21).serialize());
+    }
+
+    @Test
+    public void testKeepsRangeQueriesWithDifferentCollations() {
+        String collations = qb.or(
+                qb.range(qb.pathIndex("/name"), "xs:string", "http://marklogic.com/collation/", Operator.EQ, "Bob"),
+                qb.range(qb.pathIndex("/name"), "xs:string", "http://marklogic.com/collation/codepoint", Operator.EQ, "Fred")).serialize();
+        assertThat(collations).contains("collation=");
+        assertThat(optimize(collations)).isEqualTo(collations);
+        // With the same collation they match the same things (the attributes can come out in a different order)
+        assertThat(optimize(qb.or(
+                qb.range(qb.pathIndex("/name"), "xs:string", "http://marklogic.com/collation/codepoint", Operator.EQ, "Bob"),
+                qb.range(qb.pathIndex("/name"), "xs:string", "http://marklogic.com/collation/codepoint", Operator.EQ, "Fred")).serialize()))
+                .doesNotContain("<or-query")
+                .contains("collation=\"http://marklogic.com/collation/codepoint\"")
+                .contains("<value>Bob</value><value>Fred</value>");
+    }
+
+    @Test
+    public void testKeepsQueriesThatAreNotEquivalent() {
+        // One range query can't have two different operators
+        assertThat(optimize(qb.and(adult, young).serialize()))
+                .isEqualTo(qb.and(adult, young).serialize());
+        // Not equal with multiple values would match everything else
+        String notEqual = qb.or(
+                qb.range(qb.pathIndex("/age"), "xs:int", Operator.NE, 18),
+                qb.range(qb.pathIndex("/age"), "xs:int", Operator.NE, 21)).serialize();
+        assertThat(optimize(notEqual)).isEqualTo(notEqual);
+        // Values with different options don't match the same things
+        String options = qb.or(bob, qb.value(qb.jsonProperty("name"), null, new String[]{"case-insensitive"}, 1.0, "Fred")).serialize();
+        assertThat(optimize(options)).isEqualTo(options);
+    }
+}